@@ -0,0 +1,238 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Детерминированный генератор данных для нагрузочных прогонов: при одинаковых параметрах и seed
+ * таблицы заполняются одинаково.
+ * <p>
+ * Дружба строится по модели Чанга — Лу: оба конца каждой связи выбираются по закону Ципфа
+ * ({@link Spec#friendExponent()}), поэтому степени вершин распределены по степенному закону —
+ * немного пользователей с тысячами друзей и длинный хвост с единицами. Пятая часть связей остаётся
+ * неподтверждёнными заявками. Лайки ставятся фильмам по закону Ципфа ({@link Spec#likeExponent()}),
+ * число лайков пользователя равномерно от 0 до 2 * avgLikes.
+ * <p>
+ * Все таблицы пишутся batch-запросами по batchSize строк. Генератор требует пустых users и films:
+ * id берутся из базы после вставки, а связи строятся по ним.
+ */
+public class DatasetGenerator {
+    static final String[] WORDS = {
+            "город", "ночь", "война", "любовь", "дорога", "море", "тайна", "остров", "последний", "тень",
+            "звезда", "охота", "зима", "лето", "река", "огонь", "небо", "дом", "сердце", "время",
+            "граница", "побег", "мечта", "призрак", "память", "король", "дракон", "космос", "шторм", "рассвет",
+            "legend", "shadow", "night", "empire", "return", "dream", "storm", "city", "winter", "quest"};
+
+    private static final double CONFIRMED_SHARE = 0.8;
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmRepository filmRepository;
+    private final int batchSize;
+
+    public DatasetGenerator(JdbcTemplate jdbcTemplate, FilmRepository filmRepository, int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.filmRepository = filmRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Параметры набора данных.
+     *
+     * @param users          число пользователей
+     * @param films          число фильмов
+     * @param avgFriends     среднее число связей дружбы на пользователя
+     * @param avgLikes       среднее число лайков на пользователя
+     * @param friendExponent показатель Ципфа для концов связей дружбы
+     * @param likeExponent   показатель Ципфа для популярности фильмов
+     * @param seed           зерно генератора случайных чисел
+     */
+    public record Spec(int users, int films, int avgFriends, int avgLikes,
+                       double friendExponent, double likeExponent, long seed) {
+    }
+
+    public void generate(Spec spec) {
+        if (spec.users() < 2 || spec.films() < 1) {
+            throw new IllegalArgumentException("Нужно не меньше двух пользователей и одного фильма");
+        }
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT (SELECT COUNT(*) FROM users) + (SELECT COUNT(*) FROM films)", Integer.class);
+        if (existing != null && existing > 0) {
+            throw new IllegalStateException("Генератор заполняет только пустую базу");
+        }
+        SplittableRandom random = new SplittableRandom(spec.seed());
+
+        insertUsers(spec.users(), random.split());
+        int firstUserId = firstId("users");
+        insertFilms(spec.films(), random.split());
+        int firstFilmId = firstId("films");
+        insertFilmGenres(spec.films(), firstFilmId, random.split());
+
+        insertFriends(spec, userSampler(spec), firstUserId, random.split());
+        insertLikes(spec, filmSampler(spec), firstUserId, firstFilmId, random.split());
+        filmRepository.reconcileLikeCounts();
+    }
+
+    /**
+     * Активность пользователей: по этой выборке строятся связи дружбы. Возвращает номера пользователей
+     * от 1 в порядке вставки — в новой базе они совпадают с id.
+     */
+    static ZipfSampler userSampler(Spec spec) {
+        return new ZipfSampler(spec.users(), spec.friendExponent(), new SplittableRandom(spec.seed() + 1));
+    }
+
+    /**
+     * Популярность фильмов: по этой выборке ставятся лайки. Номера фильмов — как в {@link #userSampler(Spec)}.
+     */
+    static ZipfSampler filmSampler(Spec spec) {
+        return new ZipfSampler(spec.films(), spec.likeExponent(), new SplittableRandom(spec.seed() + 2));
+    }
+
+    /**
+     * Слово из словаря генератора: названия и описания составлены только из них,
+     * поэтому поисковые запросы нагрузочного прогона находят фильмы.
+     */
+    static String word(SplittableRandom random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private void insertUsers(int count, SplittableRandom random) {
+        Batch batch = new Batch("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)");
+        for (int i = 1; i <= count; i++) {
+            batch.add("user" + i + "@load.test", "user" + i, "Пользователь " + i,
+                    Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(55 * 365))));
+        }
+        batch.flush();
+    }
+
+    private void insertFilms(int count, SplittableRandom random) {
+        Batch batch = new Batch("""
+                INSERT INTO films (name, description, release_date, duration, content_rating_id)
+                VALUES (?, ?, ?, ?, ?)""");
+        for (int i = 1; i <= count; i++) {
+            batch.add(text(random, 1 + random.nextInt(3)),
+                    text(random, 5 + random.nextInt(15)),
+                    Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(75 * 365))),
+                    60 + random.nextInt(150),
+                    1 + random.nextInt(MPA_RATINGS));
+        }
+        batch.flush();
+    }
+
+    // От одного до трёх различных жанров на фильм
+    private void insertFilmGenres(int films, int firstFilmId, SplittableRandom random) {
+        Batch batch = new Batch("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)");
+        for (int i = 0; i < films; i++) {
+            int first = random.nextInt(GENRES);
+            int count = 1 + random.nextInt(3);
+            for (int k = 0; k < count; k++) {
+                batch.add(firstFilmId + i, 1 + (first + k) % GENRES);
+            }
+        }
+        batch.flush();
+    }
+
+    // Пара упаковывается в long (меньший id в старших битах): сортировка убирает повторы в любом направлении
+    private void insertFriends(Spec spec, ZipfSampler sampler, int firstUserId, SplittableRandom random) {
+        long edges = (long) spec.users() * spec.avgFriends() / 2;
+        long[] pairs = new long[Math.toIntExact(edges)];
+        int count = 0;
+        for (long e = 0; e < edges; e++) {
+            int a = sampler.next(random);
+            int b = sampler.next(random);
+            if (a != b) {
+                pairs[count++] = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+            }
+        }
+        Arrays.sort(pairs, 0, count);
+        Batch batch = new Batch("INSERT INTO friends (user1_id, user2_id, is_confirmed) VALUES (?, ?, ?)");
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && pairs[i] == pairs[i - 1]) {
+                continue;
+            }
+            int low = firstUserId - 1 + (int) (pairs[i] >>> 32);
+            int high = firstUserId - 1 + (int) pairs[i];
+            boolean lowRequested = random.nextBoolean();
+            batch.add(lowRequested ? low : high, lowRequested ? high : low, random.nextDouble() < CONFIRMED_SHARE);
+        }
+        batch.flush();
+    }
+
+    private void insertLikes(Spec spec, ZipfSampler sampler, int firstUserId, int firstFilmId,
+                             SplittableRandom random) {
+        Batch batch = new Batch("INSERT INTO likes (film_id, user_id) VALUES (?, ?)");
+        for (int user = 0; user < spec.users(); user++) {
+            int count = Math.min(random.nextInt(2 * spec.avgLikes() + 1), spec.films());
+            int[] films = new int[count];
+            int distinct = 0;
+            // На популярных фильмах повторы часты, число попыток ограничено
+            for (int attempt = 0; attempt < 4 * count && distinct < count; attempt++) {
+                int film = sampler.next(random);
+                if (!contains(films, distinct, film)) {
+                    films[distinct++] = film;
+                }
+            }
+            for (int i = 0; i < distinct; i++) {
+                batch.add(firstFilmId - 1 + films[i], firstUserId + user);
+            }
+        }
+        batch.flush();
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String text(SplittableRandom random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(word(random));
+        }
+        text.setCharAt(0, Character.toUpperCase(text.charAt(0)));
+        return text.toString();
+    }
+
+    private int firstId(String table) {
+        return jdbcTemplate.queryForObject("SELECT MIN(id) FROM " + table, Integer.class);
+    }
+
+    // Строки копятся до batchSize и уходят в базу одним batch-запросом
+    private final class Batch {
+        private final String sql;
+        private final List<Object[]> rows = new ArrayList<>(batchSize);
+
+        private Batch(String sql) {
+            this.sql = sql;
+        }
+
+        void add(Object... row) {
+            rows.add(row);
+            if (rows.size() == batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmMapper;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор одной строки films без базы: ResultSet в памяти с теми же столбцами, что в таблице.
+ * От размера данных не зависит, поэтому базу не поднимает.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmMapperBenchmark {
+    private final FilmMapper filmMapper = new FilmMapper();
+    private SimpleResultSet resultSet;
+
+    @Setup
+    public void setUp() throws SQLException {
+        resultSet = new SimpleResultSet();
+        resultSet.addColumn("id", Types.INTEGER, 10, 0);
+        resultSet.addColumn("name", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("description", Types.VARCHAR, 200, 0);
+        resultSet.addColumn("release_date", Types.DATE, 0, 0);
+        resultSet.addColumn("duration", Types.INTEGER, 10, 0);
+        resultSet.addColumn("content_rating_id", Types.INTEGER, 10, 0);
+        resultSet.addColumn("like_count", Types.INTEGER, 10, 0);
+        resultSet.addRow(42, "Фильм 42", "Описание фильма номер 42", Date.valueOf(LocalDate.of(1999, 3, 31)),
+                136, 4, 1000);
+        resultSet.next();
+    }
+
+    @Benchmark
+    public Film mapRow() throws SQLException {
+        return filmMapper.mapRow(resultSet, 0);
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение фильмов из репозитория: полная выборка, фильм по id и топ популярных.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class FilmRepositoryBenchmark {
+    private static final int TOP_COUNT = 10;
+
+    private FilmRepository filmRepository;
+    private int size;
+
+    @Setup
+    public void setUp(SeededDatabase database) {
+        filmRepository = database.bean(FilmRepository.class);
+        size = database.size;
+    }
+
+    @Benchmark
+    public List<Film> findAll() {
+        return filmRepository.findAll();
+    }
+
+    @Benchmark
+    public Optional<Film> findById() {
+        return filmRepository.findById(1 + ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public List<Film> findMostLikedFilms() {
+        return filmRepository.findMostLikedFilms(TOP_COUNT);
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchField;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск фильмов по названию и описанию: обратный индекс в памяти против прежнего запроса
+ * с LIKE '%слово%' по обоим полям.
+ * <p>
+ * В сид-данных названия — «Фильм N», описания — «Описание фильма номер N». Запрос «фильм» находит
+ * все фильмы, «4242» — единицы, «описание 4242» — пересечение двух слов. LIKE ищет подстроку,
+ * индекс — префикс слова, поэтому на числах LIKE находит больше; на время выдачи первых
+ * {@link #LIMIT} записей это почти не влияет. LIKE возвращает записи без ранжирования
+ * и на слове, которое есть в каждом фильме, останавливается на первых {@link #LIMIT} строках,
+ * а индекс ранжирует всех кандидатов: такой запрос — худший случай для индекса.
+ * <p>
+ * indexSearch и likeSearch возвращают только id, repositorySearch — поиск с загрузкой фильмов,
+ * как в GET /films/search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class FilmSearchBenchmark {
+    private static final int LIMIT = 10;
+    private static final Set<FilmSearchField> ALL_FIELDS = EnumSet.allOf(FilmSearchField.class);
+
+    @Param({"фильм", "4242", "описание 4242"})
+    public String query;
+
+    private FilmSearchIndex searchIndex;
+    private FilmRepository filmRepository;
+    private JdbcTemplate jdbcTemplate;
+    private String likeSql;
+    private Object[] likeArguments;
+
+    @Setup
+    public void setUp(SeededDatabase database) {
+        searchIndex = database.bean(FilmSearchIndex.class);
+        filmRepository = database.bean(FilmRepository.class);
+        jdbcTemplate = database.bean(JdbcTemplate.class);
+
+        // Каждое слово запроса должно найтись в названии или описании
+        String[] words = query.toLowerCase(Locale.ROOT).split(" ");
+        likeSql = "SELECT id FROM films WHERE "
+                + String.join(" AND ", Collections.nCopies(words.length,
+                "(LOWER(name) LIKE ? OR LOWER(description) LIKE ?)"))
+                + " LIMIT ?";
+        List<Object> arguments = new ArrayList<>();
+        for (String word : words) {
+            arguments.add("%" + word + "%");
+            arguments.add("%" + word + "%");
+        }
+        arguments.add(LIMIT);
+        likeArguments = arguments.toArray();
+    }
+
+    @Benchmark
+    public int[] indexSearch() {
+        return searchIndex.search(query, ALL_FIELDS, LIMIT);
+    }
+
+    @Benchmark
+    public List<Integer> likeSearch() {
+        return jdbcTemplate.queryForList(likeSql, Integer.class, likeArguments);
+    }
+
+    @Benchmark
+    public List<Film> repositorySearch() {
+        return filmRepository.searchFilms(query, ALL_FIELDS, LIMIT);
+    }
+}
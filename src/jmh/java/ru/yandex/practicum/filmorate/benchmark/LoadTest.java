@@ -0,0 +1,422 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный прогон в одной JVM: генерирует данные {@link DatasetGenerator}, поднимает приложение
+ * на свободном порту поверх файловой базы H2 и гоняет смесь запросов к /films и /users из clients потоков.
+ * <p>
+ * Каждый клиент ждёт ответа перед следующим запросом (замкнутый цикл), id выбираются по тем же
+ * законам Ципфа, что и при генерации: популярные фильмы и активные пользователи запрашиваются чаще.
+ * Поставленные лайки и отправленные заявки в друзья клиент позже сам снимает, поэтому объём данных
+ * за прогон почти не растёт.
+ * Ответ 409 на запись (лайк уже стоит, заявка уже есть) считается ожидаемым.
+ * <p>
+ * По итогам печатается таблица с пропускной способностью и перцентилями задержки по каждой операции,
+ * в output пишутся summary.json и распределения задержек в формате HdrHistogram (.hgrm).
+ * <p>
+ * Параметры — аргументы вида --name=value, значения по умолчанию в {@link #main(String[])}.
+ * С --reuse=true берётся база прошлого прогона; параметры данных при этом должны совпадать.
+ * Журнал HTTP-запросов Logbook на время прогона выключен, --http-log=true оставляет его по настройкам
+ * приложения. --virtual-threads=true запускает приложение на виртуальных потоках
+ * (spring.threads.virtual.enabled). Аргументы вида --app.name=value передаются приложению
+ * как --name=value, например --app.spring.profiles.active=prod.
+ * <p>
+ * Сравнение платформенных и виртуальных потоков при 2000 клиентов:
+ * <pre>
+ * -Dload.args="--clients=2000 --warmup=5 --duration=45"
+ * -Dload.args="--clients=2000 --warmup=5 --duration=45 --reuse=true --virtual-threads=true"
+ * </pre>
+ */
+public final class LoadTest {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Options options;
+    private final DatasetGenerator.Spec spec;
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private String baseUrl;
+    private ZipfSampler userSampler;
+    private ZipfSampler filmSampler;
+
+    private LoadTest(Options options) {
+        this.options = options;
+        this.spec = options.spec();
+    }
+
+    /**
+     * Операции смеси и их доли в процентах.
+     */
+    enum Operation {
+        GET_FILM(20),
+        POPULAR(12),
+        POPULAR_BY_GENRE_AND_YEAR(4),
+        SEARCH(8),
+        FILMS_PAGE(2),
+        GET_USER(8),
+        FRIENDS(14),
+        COMMON_FRIENDS(6),
+        RECOMMENDATIONS(4),
+        FRIEND_SUGGESTIONS(2),
+        LIKE(10),
+        UNLIKE(5),
+        FRIEND_REQUEST(3),
+        REMOVE_FRIEND(2);
+
+        private static final Operation[] VALUES = values();
+        private static final int TOTAL_WEIGHT = 100;
+
+        private final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+
+        static Operation pick(SplittableRandom random) {
+            int point = random.nextInt(TOTAL_WEIGHT);
+            for (Operation operation : VALUES) {
+                point -= operation.weight;
+                if (point < 0) {
+                    return operation;
+                }
+            }
+            throw new IllegalStateException("Доли операций в сумме не дают " + TOTAL_WEIGHT);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        SimpleCommandLinePropertySource arguments = new SimpleCommandLinePropertySource(args);
+        Options options = new Options(
+                Path.of(value(arguments, "db", "target/load-db")).toAbsolutePath(),
+                Path.of(value(arguments, "output", "target/load")).toAbsolutePath(),
+                Boolean.parseBoolean(value(arguments, "reuse", "false")),
+                Integer.parseInt(value(arguments, "clients", "16")),
+                Integer.parseInt(value(arguments, "warmup", "10")),
+                Integer.parseInt(value(arguments, "duration", "60")),
+                new DatasetGenerator.Spec(
+                        Integer.parseInt(value(arguments, "users", "20000")),
+                        Integer.parseInt(value(arguments, "films", "10000")),
+                        Integer.parseInt(value(arguments, "avg-friends", "10")),
+                        Integer.parseInt(value(arguments, "avg-likes", "10")),
+                        Double.parseDouble(value(arguments, "friend-exponent", "0.8")),
+                        Double.parseDouble(value(arguments, "like-exponent", "1.0")),
+                        Long.parseLong(value(arguments, "seed", "42"))),
+                Integer.parseInt(value(arguments, "batch-size", "1000")),
+                Boolean.parseBoolean(value(arguments, "http-log", "false")),
+                Boolean.parseBoolean(value(arguments, "virtual-threads", "false")),
+                appArguments(arguments));
+        new LoadTest(options).run();
+    }
+
+    private void run() throws Exception {
+        Path database = options.db().resolve(SeededDatabase.DB_FILE);
+        if (!options.reuse() || !Files.exists(database)) {
+            generate();
+        }
+        // Те же выборки, что у генератора: база создана генератором с нуля, номера совпадают с id
+        userSampler = DatasetGenerator.userSampler(spec);
+        filmSampler = DatasetGenerator.filmSampler(spec);
+        SplittableRandom random = new SplittableRandom(spec.seed());
+
+        List<String> appArguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                // Журнал ожидаемых 409 в консоли стоит дороже самих запросов
+                "--logging.level.ru.yandex.practicum.filmorate.exception=OFF"));
+        if (!options.httpLog()) {
+            appArguments.add("--logging.level.org.zalando.logbook=OFF");
+        }
+        if (options.virtualThreads()) {
+            appArguments.add("--spring.threads.virtual.enabled=true");
+        }
+        appArguments.addAll(options.appArguments());
+        try (ConfigurableApplicationContext app = SeededDatabase.start(options.db(), WebApplicationType.SERVLET,
+                appArguments.toArray(String[]::new))) {
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+            System.out.printf("Прогрев %d с, %d клиентов, %s потоки%n", options.warmup(), options.clients(),
+                    options.virtualThreads() ? "виртуальные" : "платформенные");
+            drive(options.warmup(), random.split());
+            System.out.printf("Замер %d с%n", options.duration());
+            long started = System.nanoTime();
+            Map<Operation, Result> results = drive(options.duration(), random.split());
+            report(results, (System.nanoTime() - started) / 1e9);
+        }
+    }
+
+    private void generate() throws IOException, SQLException {
+        System.out.printf("Генерация: %s%n", spec);
+        long started = System.nanoTime();
+        FileSystemUtils.deleteRecursively(options.db());
+        try (ConfigurableApplicationContext app = SeededDatabase.start(options.db(), WebApplicationType.NONE)) {
+            new DatasetGenerator(app.getBean(JdbcTemplate.class), app.getBean(FilmRepository.class),
+                    options.batchSize()).generate(spec);
+        }
+        SeededDatabase.compact(options.db());
+        System.out.printf("Генерация заняла %.1f с%n", (System.nanoTime() - started) / 1e9);
+    }
+
+    private Map<Operation, Result> drive(int seconds, SplittableRandom random) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<Map<Operation, Result>>> clients = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(options.clients())) {
+            for (int i = 0; i < options.clients(); i++) {
+                Client client = new Client(random.split());
+                clients.add(executor.submit(() -> client.runUntil(deadline)));
+            }
+        }
+        Map<Operation, Result> total = new EnumMap<>(Operation.class);
+        for (Future<Map<Operation, Result>> client : clients) {
+            client.get().forEach((operation, result) ->
+                    total.computeIfAbsent(operation, o -> new Result()).add(result));
+        }
+        return total;
+    }
+
+    private void report(Map<Operation, Result> results, double seconds) throws IOException {
+        Files.createDirectories(options.output());
+        Result all = new Result();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        System.out.printf("%-26s %9s %9s %8s %8s %8s %8s %8s %7s %7s%n",
+                "операция", "запросов", "в сек", "p50 мс", "p90 мс", "p99 мс", "p99.9 мс", "max мс", "409", "ошибок");
+        for (Map.Entry<Operation, Result> entry : results.entrySet()) {
+            all.add(entry.getValue());
+            print(entry.getKey().name(), entry.getValue(), seconds);
+            summary.put(entry.getKey().name(), entry.getValue().summary(seconds));
+            writeHistogram(entry.getKey().name(), entry.getValue());
+        }
+        print("ВСЕГО", all, seconds);
+        summary.put("TOTAL", all.summary(seconds));
+        writeHistogram("TOTAL", all);
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("dataset", spec);
+        document.put("clients", options.clients());
+        document.put("virtualThreads", options.virtualThreads());
+        document.put("seconds", seconds);
+        document.put("operations", summary);
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+                .writeValue(options.output().resolve("summary.json").toFile(), document);
+        System.out.printf("Отчёт: %s%n", options.output());
+    }
+
+    private static void print(String name, Result result, double seconds) {
+        Histogram latency = result.latency;
+        System.out.printf("%-26s %9d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f %7d %7d%n", name,
+                latency.getTotalCount(), latency.getTotalCount() / seconds,
+                millis(latency, 50), millis(latency, 90), millis(latency, 99), millis(latency, 99.9),
+                latency.getMaxValue() / 1000.0, result.conflicts, result.errors);
+    }
+
+    private void writeHistogram(String name, Result result) throws IOException {
+        try (PrintStream out = new PrintStream(options.output().resolve(name + ".hgrm").toFile())) {
+            result.latency.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static String value(SimpleCommandLinePropertySource arguments, String name, String defaultValue) {
+        String value = arguments.getProperty(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static List<String> appArguments(SimpleCommandLinePropertySource arguments) {
+        List<String> appArguments = new ArrayList<>();
+        for (String name : arguments.getPropertyNames()) {
+            if (name.startsWith("app.")) {
+                appArguments.add("--" + name.substring("app.".length()) + "=" + arguments.getProperty(name));
+            }
+        }
+        return appArguments;
+    }
+
+    private record Options(Path db, Path output, boolean reuse, int clients, int warmup, int duration,
+                           DatasetGenerator.Spec spec, int batchSize, boolean httpLog, boolean virtualThreads,
+                           List<String> appArguments) {
+    }
+
+    // Задержки в микросекундах, ответы 409 и прочие ошибки одной операции
+    private static final class Result {
+        private final Histogram latency = new Histogram(MAX_LATENCY_MICROS, 3);
+        private long conflicts;
+        private long errors;
+
+        void add(Result other) {
+            latency.add(other.latency);
+            conflicts += other.conflicts;
+            errors += other.errors;
+        }
+
+        Map<String, Object> summary(double seconds) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", latency.getTotalCount());
+            summary.put("throughput", latency.getTotalCount() / seconds);
+            summary.put("p50Ms", millis(latency, 50));
+            summary.put("p90Ms", millis(latency, 90));
+            summary.put("p99Ms", millis(latency, 99));
+            summary.put("p999Ms", millis(latency, 99.9));
+            summary.put("maxMs", latency.getMaxValue() / 1000.0);
+            summary.put("conflicts", conflicts);
+            summary.put("errors", errors);
+            return summary;
+        }
+    }
+
+    // Один клиент: свои генератор, счётчики и поставленные лайки и заявки, которые потом снимает
+    private final class Client {
+        private final SplittableRandom random;
+        private final Map<Operation, Result> results = new EnumMap<>(Operation.class);
+        private final ArrayDeque<int[]> likes = new ArrayDeque<>();
+        private final ArrayDeque<int[]> friendRequests = new ArrayDeque<>();
+        // Пара последнего лайка или заявки: снимается позже, только если запись прошла
+        private int[] written;
+
+        private Client(SplittableRandom random) {
+            this.random = random;
+        }
+
+        Map<Operation, Result> runUntil(long deadline) {
+            while (System.nanoTime() < deadline) {
+                Operation operation = Operation.pick(random);
+                if (operation == Operation.UNLIKE && likes.isEmpty()) {
+                    operation = Operation.LIKE;
+                } else if (operation == Operation.REMOVE_FRIEND && friendRequests.isEmpty()) {
+                    operation = Operation.FRIEND_REQUEST;
+                }
+                execute(operation);
+            }
+            return results;
+        }
+
+        private void execute(Operation operation) {
+            HttpRequest request = request(operation);
+            Result result = results.computeIfAbsent(operation, o -> new Result());
+            long started = System.nanoTime();
+            int status;
+            try {
+                status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long micros = (System.nanoTime() - started) / 1000;
+            result.latency.recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+            if (status == 409) {
+                result.conflicts++;
+            } else if (status < 200 || status >= 300) {
+                result.errors++;
+            } else if (operation == Operation.LIKE) {
+                likes.add(written);
+            } else if (operation == Operation.FRIEND_REQUEST) {
+                friendRequests.add(written);
+            }
+        }
+
+        private HttpRequest request(Operation operation) {
+            return switch (operation) {
+                case GET_FILM -> get("/films/" + film());
+                case POPULAR -> get("/films/popular?count=10");
+                case POPULAR_BY_GENRE_AND_YEAR -> get("/films/popular?count=10&genreId=" + (1 + random.nextInt(6))
+                        + "&year=" + (1950 + random.nextInt(75)));
+                case SEARCH -> get("/films/search?query=" + prefix(DatasetGenerator.word(random)));
+                case FILMS_PAGE -> get("/films?limit=50");
+                case GET_USER -> get("/users/" + user());
+                case FRIENDS -> get("/users/" + user() + "/friends");
+                case COMMON_FRIENDS -> {
+                    int[] pair = userPair();
+                    yield get("/users/" + pair[0] + "/friends/common/" + pair[1]);
+                }
+                case RECOMMENDATIONS -> get("/users/" + user() + "/recommendations");
+                case FRIEND_SUGGESTIONS -> get("/users/" + user() + "/friends/suggestions");
+                case LIKE -> {
+                    written = new int[]{film(), user()};
+                    yield send("PUT", "/films/" + written[0] + "/like/" + written[1]);
+                }
+                case UNLIKE -> {
+                    int[] like = likes.poll();
+                    yield send("DELETE", "/films/" + like[0] + "/like/" + like[1]);
+                }
+                case FRIEND_REQUEST -> {
+                    written = userPair();
+                    yield send("PUT", "/users/" + written[0] + "/friends/" + written[1]);
+                }
+                case REMOVE_FRIEND -> {
+                    int[] pair = friendRequests.poll();
+                    yield send("DELETE", "/users/" + pair[0] + "/friends/" + pair[1]);
+                }
+            };
+        }
+
+        // Префикс из первых 3–5 букв слова, в URL кодируется
+        private String prefix(String word) {
+            String prefix = word.substring(0, Math.min(word.length(), 3 + random.nextInt(3)));
+            return URLEncoder.encode(prefix, StandardCharsets.UTF_8);
+        }
+
+        private int film() {
+            return filmSampler.next(random);
+        }
+
+        private int user() {
+            return userSampler.next(random);
+        }
+
+        private int[] userPair() {
+            int first = user();
+            int second = user();
+            while (second == first) {
+                second = user();
+            }
+            return new int[]{first, second};
+        }
+
+        private HttpRequest get(String path) {
+            return send("GET", path);
+        }
+
+        private HttpRequest send(String method, String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .method(method, HttpRequest.BodyPublishers.noBody())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Настройки пула HikariCP и URL базы H2 из профиля prod против настроек по умолчанию.
+ * <p>
+ * Пул открывается напрямую, без приложения и его индексов в памяти: каждая операция — четыре
+ * запроса к случайным строкам, которые репозитории выполняют на горячем пути (фильм, его жанры,
+ * лайки пользователя, пользователь), каждый на отдельном соединении из пула. 32 потока
+ * конкурируют за poolSize соединений. settings=default — URL без параметров, как в application.properties,
+ * tuned — CACHE_SIZE и QUERY_CACHE_SIZE из application-prod.properties.
+ * <p>
+ * Throughput даёт число операций в секунду, SampleTime — распределение времени операции с p99.
+ * Значения профиля prod получены так:
+ * mvn -Pbenchmark -DskipTests verify -Djmh.args="PoolBenchmark -p size=1000000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+@Threads(32)
+public class PoolBenchmark {
+    private static final String TUNED_URL_SETTINGS = ";CACHE_SIZE=131072;QUERY_CACHE_SIZE=64";
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"default", "tuned"})
+    public String settings;
+
+    @Param({"10", "4", "8", "32"})
+    public int poolSize;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        HikariConfig config = new HikariConfig();
+        String url = SeededDatabase.url(SeededDatabase.copySeeded(size, "pool"));
+        config.setJdbcUrl("tuned".equals(settings) ? url + TUNED_URL_SETTINGS : url);
+        config.setUsername(SeededDatabase.USERNAME);
+        config.setPassword(SeededDatabase.PASSWORD);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(poolSize);
+        dataSource = new HikariDataSource(config);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void hotQueries(Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = 1 + random.nextInt(size);
+        int userId = 1 + random.nextInt(size);
+        blackhole.consume(jdbcTemplate.queryForList("SELECT * FROM films WHERE id = ?", filmId));
+        blackhole.consume(jdbcTemplate.queryForList(
+                "SELECT film_id, genre_id FROM film_genres WHERE film_id = ANY(?) ORDER BY film_id, genre_id",
+                (Object) new Integer[]{filmId}));
+        blackhole.consume(jdbcTemplate.queryForList("SELECT film_id FROM likes WHERE user_id = ?", userId));
+        blackhole.consume(jdbcTemplate.queryForList("SELECT * FROM users WHERE id = ?", userId));
+    }
+}
@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Приложение без веб-сервера на файловой базе H2, заполненной size фильмами и size пользователями.
+ * <p>
+ * У каждого пользователя {@link #LIKES_PER_USER} лайка и {@link #FRIENDS_PER_USER} подтверждённых друзей
+ * среди следующих по id, у каждого фильма один жанр. Данные вставляются SQL-запросами по SYSTEM_RANGE,
+ * после чего приложение перезапускается: индексы в памяти строятся при старте так же, как в работе.
+ * <p>
+ * Заполнение миллиона строк занимает минуты, поэтому заполненная база сохраняется в target/jmh-db/seed-size
+ * и в каждом прогоне копируется заново: записи из предыдущих прогонов на замеры не влияют.
+ * После изменения миграций или сид-данных сохранённые базы удаляются через mvn clean.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+    static final int LIKES_PER_USER = 2;
+    static final int FRIENDS_PER_USER = 4;
+
+    // Шаги, которыми лайки пользователя разбросаны по фильмам
+    static final int LIKE_USER_STEP = 31;
+    static final int LIKE_STEP = 17;
+
+    static final String DB_NAME = "filmorate";
+    static final String DB_FILE = DB_NAME + ".mv.db";
+    // Те же учётные данные, что в application.properties
+    static final String USERNAME = "sa";
+    static final String PASSWORD = "password";
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        context = start(copySeeded(size, "run"), WebApplicationType.NONE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Фильм, который сид-данные отдают пользователю userId лайком номер n. Для n не меньше
+     * {@link #LIKES_PER_USER} пара в базе отсутствует, пока n меньше size.
+     */
+    int likedFilm(int userId, int n) {
+        return 1 + (int) (((long) userId * LIKE_USER_STEP + (long) n * LIKE_STEP) % size);
+    }
+
+    /**
+     * n-й пользователь после userId по кругу. Друзья из сид-данных — n от 1 до {@link #FRIENDS_PER_USER}.
+     */
+    int nextUser(int userId, int n) {
+        return 1 + (int) ((userId - 1L + n) % size);
+    }
+
+    /**
+     * Копия базы, заполненной size записями, в каталоге name рядом с сохранёнными базами.
+     * Если сохранённой базы ещё нет, она заполняется.
+     */
+    static Path copySeeded(int size, String name) throws IOException, SQLException {
+        Path directory = Path.of(System.getProperty("jmh.db.dir", "target/jmh-db")).toAbsolutePath();
+        Path seeded = directory.resolve("seed-" + size).resolve(DB_FILE);
+        if (!Files.exists(seeded)) {
+            Path seeding = directory.resolve("seeding-" + size);
+            FileSystemUtils.deleteRecursively(seeding);
+            try (ConfigurableApplicationContext app = start(seeding, WebApplicationType.NONE)) {
+                seed(app.getBean(JdbcTemplate.class), size);
+                app.getBean(FilmRepository.class).reconcileLikeCounts();
+            }
+            compact(seeding);
+            Files.createDirectories(seeded.getParent());
+            Files.move(seeding.resolve(DB_FILE), seeded);
+            FileSystemUtils.deleteRecursively(seeding);
+        }
+        Path work = directory.resolve(name);
+        FileSystemUtils.deleteRecursively(work);
+        Files.createDirectories(work);
+        Files.copy(seeded, work.resolve(DB_FILE));
+        return work;
+    }
+
+    /**
+     * Приложение на файловой базе H2 в directory. Настройки передаются аргументами командной строки,
+     * чтобы перекрыть application.properties.
+     */
+    static ConfigurableApplicationContext start(Path directory, WebApplicationType type, String... args) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + url(directory),
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        arguments.addAll(List.of(args));
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(type)
+                .run(arguments.toArray(String[]::new));
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, int size) {
+        jdbcTemplate.update("""
+                INSERT INTO films (name, description, release_date, duration, content_rating_id)
+                SELECT 'Фильм ' || X, 'Описание фильма номер ' || X,
+                       DATEADD(DAY, MOD(X, 20000), DATE '1960-01-01'), 60 + MOD(X, 120), 1 + MOD(X, 5)
+                FROM SYSTEM_RANGE(1, ?)""", size);
+        jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) SELECT X, 1 + MOD(X, 6) FROM SYSTEM_RANGE(1, ?)",
+                size);
+        jdbcTemplate.update("""
+                INSERT INTO users (email, login, name, birthday)
+                SELECT 'user' || X || '@bench.ru', 'user' || X, 'Пользователь ' || X,
+                       DATEADD(DAY, MOD(X, 15000), DATE '1960-01-01')
+                FROM SYSTEM_RANGE(1, ?)""", size);
+        jdbcTemplate.update("""
+                INSERT INTO likes (film_id, user_id)
+                SELECT 1 + MOD(u.X * ? + n.X * ?, ?), u.X
+                FROM SYSTEM_RANGE(1, ?) u, SYSTEM_RANGE(0, ?) n""",
+                LIKE_USER_STEP, LIKE_STEP, size, size, LIKES_PER_USER - 1);
+        jdbcTemplate.update("""
+                INSERT INTO friends (user1_id, user2_id, is_confirmed)
+                SELECT u.X, 1 + MOD(u.X - 1 + n.X, ?), true
+                FROM SYSTEM_RANGE(1, ?) u, SYSTEM_RANGE(1, ?) n""",
+                size, size, FRIENDS_PER_USER);
+    }
+
+    // После массовой вставки файл MVStore в десятки раз больше данных: на миллионе фильмов 3,4 ГБ против 390 МБ
+    static void compact(Path directory) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url(directory), USERNAME, PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN COMPACT");
+        }
+    }
+
+    static String url(Path directory) {
+        return "jdbc:h2:file:" + directory.resolve(DB_NAME);
+    }
+}
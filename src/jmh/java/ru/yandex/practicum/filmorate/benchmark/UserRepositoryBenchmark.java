@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Друзья пользователя и общие друзья двух пользователей. Для общих друзей берётся сосед по id:
+ * у соседей по сид-данным есть пересечение списков.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class UserRepositoryBenchmark {
+    private UserRepository userRepository;
+    private SeededDatabase database;
+
+    @Setup
+    public void setUp(SeededDatabase database) {
+        this.database = database;
+        userRepository = database.bean(UserRepository.class);
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return userRepository.getFriends(randomUser());
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        int userId = randomUser();
+        return userRepository.getCommonFriends(userId, database.nextUser(userId, 1));
+    }
+
+    private int randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(database.size);
+    }
+}
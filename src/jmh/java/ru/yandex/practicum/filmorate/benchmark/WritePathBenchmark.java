@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.concurrent.TimeUnit;
+
+import static ru.yandex.practicum.filmorate.benchmark.SeededDatabase.FRIENDS_PER_USER;
+import static ru.yandex.practicum.filmorate.benchmark.SeededDatabase.LIKES_PER_USER;
+
+/**
+ * Записи через сервисы: лайк и заявка в друзья, каждая в своей транзакции со всеми проверками.
+ * <p>
+ * Каждый вызов пишет новую пару: пользователи перебираются по кругу, на каждом круге берётся следующий
+ * фильм или пользователь, которого нет в сид-данных. После итерации записанное удаляется теми же
+ * сервисами, чтобы база и индексы в памяти вернулись к исходному размеру.
+ * <p>
+ * friendshipRoundTrip и friendshipRoundTripWithOr сравнивают SQL заявки в друзья до и после перехода
+ * на MERGE: проверки существования и дружбы в обоих случаях читают граф в памяти, поэтому разница —
+ * только в запросах к friends. Заявка и её удаление выполняются в одной транзакции, пара каждый раз
+ * возвращается к исходному состоянию.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class WritePathBenchmark {
+    private SeededDatabase database;
+    private FilmService filmService;
+    private UserService userService;
+    private UserRepository userRepository;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private long likes;
+    private long friendRequests;
+    private long roundTrips;
+
+    @Setup
+    public void setUp(SeededDatabase database) {
+        this.database = database;
+        filmService = database.bean(FilmService.class);
+        userService = database.bean(UserService.class);
+        userRepository = database.bean(UserRepository.class);
+        jdbcTemplate = database.bean(JdbcTemplate.class);
+        transactionTemplate = database.bean(TransactionTemplate.class);
+    }
+
+    @Benchmark
+    public void addLike() {
+        int userId = user(likes);
+        filmService.addLike(database.likedFilm(userId, likeRound(likes)), userId);
+        likes++;
+    }
+
+    @Benchmark
+    public FriendshipStatus makeFriends() {
+        int userId = user(friendRequests);
+        FriendshipStatus status = userService.makeFriends(userId, database.nextUser(userId, friendRound(friendRequests)));
+        friendRequests++;
+        return status;
+    }
+
+    // Текущие запросы: MERGE с IN по обоим столбцам и DELETE с тем же условием читают первичный ключ
+    @Benchmark
+    public boolean friendshipRoundTrip() {
+        int userId = user(roundTrips++);
+        int friendId = database.nextUser(userId, FRIENDS_PER_USER + 1);
+        return transactionTemplate.execute(status -> {
+            userRepository.requestFriendship(userId, friendId);
+            return userRepository.removeFriends(userId, friendId);
+        });
+    }
+
+    // Запросы до перехода на MERGE: INSERT заявки и DELETE с OR двух направлений
+    @Benchmark
+    public boolean friendshipRoundTripWithOr() {
+        int userId = user(roundTrips++);
+        int friendId = database.nextUser(userId, FRIENDS_PER_USER + 1);
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update("INSERT INTO friends (user1_id, user2_id, is_confirmed) VALUES (?, ?, ?)",
+                    userId, friendId, false);
+            return jdbcTemplate.update("DELETE FROM friends WHERE (user1_id = ? AND user2_id = ?) "
+                    + "OR (user2_id = ? AND user1_id = ?)", userId, friendId, friendId, userId) > 0;
+        });
+    }
+
+    @TearDown(Level.Iteration)
+    public void undo() {
+        for (long i = 0; i < likes; i++) {
+            int userId = user(i);
+            filmService.deleteLike(database.likedFilm(userId, likeRound(i)), userId);
+        }
+        for (long i = 0; i < friendRequests; i++) {
+            int userId = user(i);
+            userService.removeFriend(userId, database.nextUser(userId, friendRound(i)));
+        }
+        likes = 0;
+        friendRequests = 0;
+    }
+
+    private int user(long i) {
+        return 1 + (int) (i % database.size);
+    }
+
+    // Лайки с номером от LIKES_PER_USER до size - 1 в сид-данных не заняты
+    private int likeRound(long i) {
+        return checkRound(LIKES_PER_USER + i / database.size, database.size);
+    }
+
+    // Заявка на круге n идёт к n-му следующему пользователю; ближайшие FRIENDS_PER_USER с обеих сторон — уже друзья
+    private int friendRound(long i) {
+        return checkRound(FRIENDS_PER_USER + 1 + i / database.size, database.size - FRIENDS_PER_USER);
+    }
+
+    private static int checkRound(long round, int limit) {
+        if (round >= limit) {
+            throw new IllegalStateException("Свободные пары исчерпаны, уменьшите время итерации");
+        }
+        return (int) round;
+    }
+}
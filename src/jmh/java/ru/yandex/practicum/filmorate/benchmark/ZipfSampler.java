@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Выбор id из 1..n по закону Ципфа: ранг k выпадает с вероятностью, пропорциональной 1 / k^exponent.
+ * Ранги раздаются id в случайном порядке, чтобы популярность не совпадала с порядком вставки.
+ * <p>
+ * Выбор — двоичный поиск по накопленным весам, память — 12 байт на id.
+ * Экземпляр не меняется после создания, случайность передаётся вызывающим.
+ */
+final class ZipfSampler {
+    private final double[] cumulative;
+    private final int[] idByRank;
+
+    ZipfSampler(int n, double exponent, SplittableRandom random) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Размер выборки должен быть положительным: " + n);
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        idByRank = new int[n];
+        for (int i = 0; i < n; i++) {
+            idByRank[i] = i + 1;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int id = idByRank[i];
+            idByRank[i] = idByRank[j];
+            idByRank[j] = id;
+        }
+    }
+
+    int next(SplittableRandom random) {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int rank = Arrays.binarySearch(cumulative, target);
+        return idByRank[rank >= 0 ? rank : Math.min(-rank - 1, cumulative.length - 1)];
+    }
+
+    int size() {
+        return idByRank.length;
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки пакетных операций.
+ *
+ * @param maxSize   максимальное число элементов в одном запросе
+ * @param chunkSize сколько элементов записывается в одной транзакции
+ */
+@ConfigurationProperties(prefix = "filmorate.batch")
+public record BatchProperties(
+        @DefaultValue("50000") int maxSize,
+        @DefaultValue("1000") int chunkSize) {
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки кэша существования пользователей и фильмов.
+ *
+ * @param expectedEntries     ожидаемое число записей одного типа, по нему рассчитывается фильтр Блума
+ * @param falsePositiveRate   допустимая доля ложноположительных ответов фильтра Блума
+ * @param confirmedCapacity   число слотов под подтверждённые базой id (на каждый тип)
+ */
+@ConfigurationProperties(prefix = "filmorate.existence-cache")
+public record ExistenceCacheProperties(
+        @DefaultValue("1000000") int expectedEntries,
+        @DefaultValue("0.01") double falsePositiveRate,
+        @DefaultValue("65536") int confirmedCapacity) {
+}
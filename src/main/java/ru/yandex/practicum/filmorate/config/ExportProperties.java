@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки потоковой выгрузки /films/export и /users/export.
+ *
+ * @param fetchSize сколько строк драйвер читает из базы за одно обращение к курсору
+ */
+@ConfigurationProperties(prefix = "filmorate.export")
+public record ExportProperties(@DefaultValue("1000") int fetchSize) {
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки HTTP-кэширования ответов (ETag и Cache-Control).
+ *
+ * @param versionSlots    число счётчиков версий на тип сущности (степень двойки). Сущности с одинаковым
+ *                        остатком id делят счётчик: запись в одну лишь сбрасывает кэш соседних
+ * @param referenceMaxAge время, на которое клиенты и CDN кэшируют справочники жанров и MPA
+ */
+@ConfigurationProperties(prefix = "filmorate.http-cache")
+public record HttpCacheProperties(
+        @DefaultValue("65536") int versionSlots,
+        @DefaultValue("1h") Duration referenceMaxAge) {
+}
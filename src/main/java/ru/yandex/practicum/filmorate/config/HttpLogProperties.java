@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки журнала HTTP-запросов Logbook.
+ * <p>
+ * Журнал пишется на уровне TRACE логгера org.zalando.logbook через асинхронный аппендер
+ * из logback-spring.xml, размер его очереди — filmorate.http-log.queue-size.
+ *
+ * @param sampleRate доля запросов, попадающих в журнал: 1 — все, 0 — ни одного
+ */
+@ConfigurationProperties(prefix = "filmorate.http-log")
+public record HttpLogProperties(
+        @DefaultValue("1.0") double sampleRate) {
+}
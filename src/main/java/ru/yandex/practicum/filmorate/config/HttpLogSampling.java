@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Выборка запросов для журнала Logbook: запрос попадает в журнал с вероятностью sampleRate.
+ * <p>
+ * Бин заменяет условие requestCondition автоконфигурации Logbook, исключения logbook.predicate.exclude
+ * применяются поверх него. Для невыбранного запроса Logbook не копирует тела и не форматирует запись,
+ * поэтому запрос обходится так же, как при выключенном журнале.
+ */
+@Component("requestCondition")
+@RequiredArgsConstructor
+public class HttpLogSampling implements Predicate<HttpRequest> {
+    private final HttpLogProperties properties;
+
+    @Override
+    public boolean test(HttpRequest request) {
+        double sampleRate = properties.sampleRate();
+        return sampleRate >= 1 || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки отложенной записи лайков (write-behind).
+ * <p>
+ * При включённом буфере лайк сразу виден в рейтинге, рекомендациях и проверках повторного лайка,
+ * а в базу попадает при очередном сбросе: раз в flushIntervalMs или раньше, когда в буфере
+ * набирается maxPending пар. При штатной остановке буфер сбрасывается. При аварийной остановке
+ * теряются лайки, принятые после последнего успешного сброса: пока база доступна — за окно не больше
+ * flushIntervalMs, пока база отклоняет запись — не больше {@link #maxBuffered()} пар. Неудачный сброс
+ * возвращает события в буфер, и чтобы он не рос без предела, новые пары сверх maxBuffered отклоняются
+ * с {@link ru.yandex.practicum.filmorate.exception.LikeBufferFullException}. Пары, уже лежащие в буфере,
+ * по-прежнему принимаются.
+ *
+ * @param enabled         принимать лайки в буфер вместо записи в базу в каждом запросе
+ * @param flushIntervalMs период сброса буфера в базу, мс
+ * @param maxPending      число пар (фильм, пользователь) в буфере, при котором сброс запускается досрочно
+ */
+@ConfigurationProperties(prefix = "filmorate.likes.buffer")
+public record LikeBufferProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("1000") long flushIntervalMs,
+        @DefaultValue("10000") int maxPending) {
+
+    /**
+     * Предел пар в буфере вместе со сбрасываемыми, выше которого новые пары не принимаются.
+     */
+    public long maxBuffered() {
+        return 2L * maxPending;
+    }
+}
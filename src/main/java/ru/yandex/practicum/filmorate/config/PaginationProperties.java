@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Ограничения на размер выдачи списков.
+ *
+ * @param defaultLimit размер страницы, если limit не указан
+ * @param maxLimit     максимальный размер страницы
+ * @param maxUnpaged   сколько записей максимум отдаётся запросом без пагинации; если записей больше,
+ *                     ответ несёт курсор продолжения, как страница
+ */
+@ConfigurationProperties(prefix = "filmorate.pagination")
+public record PaginationProperties(
+        @DefaultValue("100") int defaultLimit,
+        @DefaultValue("1000") int maxLimit,
+        @DefaultValue("10000") int maxUnpaged) {
+}
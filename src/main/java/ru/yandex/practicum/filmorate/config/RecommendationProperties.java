@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки рекомендаций фильмов (GET /users/{id}/recommendations).
+ *
+ * @param neighbours сколько самых похожих по лайкам пользователей учитывать
+ * @param maxLimit   максимальное число рекомендаций в ответе
+ */
+@ConfigurationProperties(prefix = "filmorate.recommendations")
+public record RecommendationProperties(
+        @DefaultValue("20") int neighbours,
+        @DefaultValue("100") int maxLimit) {
+}
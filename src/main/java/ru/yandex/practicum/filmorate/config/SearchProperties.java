@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки полнотекстового поиска фильмов (GET /films/search).
+ *
+ * @param maxLimit       максимальное число фильмов в ответе
+ * @param maxPrefixTerms сколько терминов словаря не больше раскрывается по одному префиксу запроса
+ */
+@ConfigurationProperties(prefix = "filmorate.search")
+public record SearchProperties(
+        @DefaultValue("100") int maxLimit,
+        @DefaultValue("1000") int maxPrefixTerms) {
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки рекомендаций друзей (GET /users/{id}/friends/suggestions).
+ *
+ * @param maxLimit   максимальное число рекомендаций в ответе
+ * @param maxVisited сколько связей второго уровня просматривается не больше чем за один расчёт
+ * @param cacheSize  число ячеек кэша рекомендаций; пользователь с тем же номером ячейки вытесняет предыдущего
+ */
+@ConfigurationProperties(prefix = "filmorate.suggestions")
+public record SuggestionProperties(
+        @DefaultValue("100") int maxLimit,
+        @DefaultValue("200000") int maxVisited,
+        @DefaultValue("10000") int cacheSize) {
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Размер пула соединений в режиме виртуальных потоков (spring.threads.virtual.enabled=true).
+ * <p>
+ * На виртуальных потоках одновременно могут выполняться тысячи запросов, и ограничителем становится
+ * пул соединений. Драйвер H2 работает внутри synchronized-методов соединения и сессии, поэтому поток,
+ * держащий соединение, закреплён за потоком-носителем. Если соединений больше, чем носителей, все
+ * носители могут оказаться заняты потоками, ждущими блокировку строки, а её владелец не получит
+ * носитель, чтобы завершить транзакцию. Поэтому пул равен числу носителей. Остальные виртуальные
+ * потоки ждут соединение в HikariCP, который с версии 5.1 ожидает на локах, без закрепления.
+ * Встроенная H2 выполняет запросы на процессоре внутри JVM, так что лишние соединения всё равно
+ * не добавили бы пропускной способности.
+ * <p>
+ * Минимум — два соединения: столько одновременно берёт Flyway при миграции. При одном носителе
+ * зависшее ожидание прерывается таймаутом блокировки H2.
+ * <p>
+ * Явно заданный spring.datasource.hikari.maximum-pool-size не переопределяется, но если он больше
+ * числа носителей, при старте пишется предупреждение.
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@RequiredArgsConstructor
+public class VirtualThreadPoolSizing implements BeanPostProcessor {
+    private static final String MAX_POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+
+    private final Environment environment;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // Пул может быть уже обёрнут, например счётчиком обращений JdbcRoundTrips
+        HikariDataSource dataSource = bean instanceof DataSource wrapped
+                ? DataSourceUnwrapper.unwrap(wrapped, HikariConfigMXBean.class, HikariDataSource.class)
+                : null;
+        if (dataSource == null) {
+            return bean;
+        }
+        int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        if (environment.containsProperty(MAX_POOL_SIZE)) {
+            if (dataSource.getMaximumPoolSize() > Math.max(2, carriers)) {
+                log.warn("Виртуальные потоки: пул соединений {} больше числа носителей {}, возможна взаимоблокировка "
+                        + "закреплённых потоков", dataSource.getMaximumPoolSize(), carriers);
+            }
+        } else {
+            int poolSize = Math.max(2, carriers);
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSource.setMinimumIdle(poolSize);
+            log.info("Виртуальные потоки: {} носителей, пул соединений {}", carriers, poolSize);
+        }
+        return bean;
+    }
+}
@@ -1,10 +1,18 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.index.EntityVersions;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeBatchResult;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.List;
@@ -14,9 +22,15 @@ import java.util.List;
 @RequestMapping("/films")
 public class FilmController {
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final EntityVersions entityVersions;
 
+    // ETag — версия фильма в памяти: при совпадении If-None-Match ответ 304 отдаётся без запроса к базе
     @GetMapping("/{id}")
-    public Film getFilm(@PathVariable int id) {
+    public Film getFilm(@PathVariable int id, WebRequest request) {
+        if (request.checkNotModified(entityVersions.filmTag(id))) {
+            return null;
+        }
         return filmService.getFilmById(id);
     }
 
@@ -32,6 +46,17 @@ public class FilmController {
         return filmService.createFilm(film);
     }
 
+    @PostMapping("/likes/batch")
+    public LikeBatchResult applyLikes(@RequestBody List<LikeChange> changes) {
+        return filmService.applyLikes(changes);
+    }
+
+    // Валидация выполняется по каждому элементу отдельно, поэтому без @Valid на всём списке
+    @PostMapping("/batch")
+    public List<BatchItemResult> createFilms(@RequestBody List<Film> films) {
+        return filmService.createFilms(films);
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteLike(@PathVariable int id, @PathVariable int userId) {
@@ -39,13 +64,38 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
-        return filmService.findMostLikedFilms(count);
+    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                      @RequestParam(required = false) Integer genreId,
+                                      @RequestParam(required = false) Integer year,
+                                      WebRequest request) {
+        if (request.checkNotModified(entityVersions.filmListTag())) {
+            return null;
+        }
+        return filmService.findMostLikedFilms(count, genreId, year);
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String query,
+                                  @RequestParam(required = false) List<String> by,
+                                  @RequestParam(required = false) Integer limit) {
+        return filmService.searchFilms(query, by, limit);
+    }
+
+    // Полная выгрузка в NDJSON для аналитики, память не зависит от размера таблицы
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        return Ndjson.stream(objectMapper, filmService::exportFilms);
     }
 
+    // Без параметров — весь список (с ограничением сверху; обрезанный список отдаётся с курсором продолжения),
+    // с cursor/limit — keyset-пагинация
     @GetMapping
-    public List<Film> getAllFilms() {
-        return filmService.getAllFilms();
+    public ResponseEntity<List<Film>> getAllFilms(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) Integer limit) {
+        if (cursor == null && limit == null) {
+            return Pages.toResponse(filmService.getAllFilms());
+        }
+        return Pages.toResponse(filmService.getFilmsPage(cursor, limit));
     }
 
     @PutMapping
@@ -1,10 +1,13 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.config.HttpCacheProperties;
+import ru.yandex.practicum.filmorate.index.EntityVersions;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
@@ -15,14 +18,16 @@ import java.util.List;
 @RequestMapping("/genres")
 public class GenreController {
     private final GenreService genreService;
+    private final EntityVersions entityVersions;
+    private final HttpCacheProperties httpCacheProperties;
 
     @GetMapping
-    public List<Genre> findAllGenres() {
-        return genreService.findAll();
+    public ResponseEntity<List<Genre>> findAllGenres() {
+        return References.toResponse(genreService.findAll(), entityVersions, httpCacheProperties);
     }
 
     @GetMapping("/{id}")
-    public Genre findById(@PathVariable int id) {
-        return genreService.findById(id);
+    public ResponseEntity<Genre> findById(@PathVariable int id) {
+        return References.toResponse(genreService.findById(id), entityVersions, httpCacheProperties);
     }
 }
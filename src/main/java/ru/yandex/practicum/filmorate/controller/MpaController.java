@@ -1,7 +1,10 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.config.HttpCacheProperties;
+import ru.yandex.practicum.filmorate.index.EntityVersions;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
@@ -12,14 +15,16 @@ import java.util.List;
 @RequestMapping("/mpa")
 public class MpaController {
     private final MpaService mpaService;
+    private final EntityVersions entityVersions;
+    private final HttpCacheProperties httpCacheProperties;
 
     @GetMapping
-    public List<Mpa> findAllMpa() {
-        return mpaService.findAll();
+    public ResponseEntity<List<Mpa>> findAllMpa() {
+        return References.toResponse(mpaService.findAll(), entityVersions, httpCacheProperties);
     }
 
     @GetMapping("/{id}")
-    public Mpa findMpaById(@PathVariable int id) {
-        return mpaService.findById(id);
+    public ResponseEntity<Mpa> findMpaById(@PathVariable int id) {
+        return References.toResponse(mpaService.findById(id), entityVersions, httpCacheProperties);
     }
 }
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Потоковый ответ в формате NDJSON: один JSON-объект на строку.
+ * Записи сериализуются по мере чтения из базы, ответ целиком в памяти не собирается.
+ */
+final class Ndjson {
+    static final MediaType MEDIA_TYPE = MediaType.parseMediaType("application/x-ndjson");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Ndjson() {
+    }
+
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper,
+                                                            Consumer<Consumer<T>> source) {
+        ObjectWriter writer = objectMapper.writer();
+        StreamingResponseBody responseBody = body -> {
+            OutputStream out = new BufferedOutputStream(body, BUFFER_SIZE);
+            source.accept(item -> {
+                try {
+                    out.write(writer.writeValueAsBytes(item));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MEDIA_TYPE).body(responseBody);
+    }
+}
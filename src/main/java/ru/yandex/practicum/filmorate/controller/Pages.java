@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.util.List;
+
+/**
+ * Ответ для постраничной выдачи: тело остаётся обычным списком,
+ * курсор следующей страницы передаётся в заголовке.
+ */
+final class Pages {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private Pages() {
+    }
+
+    static <T> ResponseEntity<List<T>> toResponse(Page<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.config.HttpCacheProperties;
+import ru.yandex.practicum.filmorate.index.EntityVersions;
+
+/**
+ * Ответ справочника (жанры, MPA): справочники меняются только миграциями, поэтому ответ
+ * разрешено кэшировать клиентам и CDN на referenceMaxAge, а после — перепроверять по ETag.
+ * При совпадении If-None-Match Spring отвечает 304 без сериализации тела.
+ */
+final class References {
+
+    private References() {
+    }
+
+    static <T> ResponseEntity<T> toResponse(T body, EntityVersions entityVersions, HttpCacheProperties properties) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(properties.referenceMaxAge()).cachePublic())
+                .eTag(entityVersions.referenceTag())
+                .body(body);
+    }
+}
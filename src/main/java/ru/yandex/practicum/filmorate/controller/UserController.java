@@ -1,19 +1,32 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.index.EntityVersions;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @AllArgsConstructor
 @RestController
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final EntityVersions entityVersions;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -21,9 +34,21 @@ public class UserController {
         return userService.createUser(user);
     }
 
+    // Полная выгрузка в NDJSON для аналитики, память не зависит от размера таблицы
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return Ndjson.stream(objectMapper, userService::exportUsers);
+    }
+
+    // Без параметров — весь список (с ограничением сверху; обрезанный список отдаётся с курсором продолжения),
+    // с cursor/limit — keyset-пагинация
     @GetMapping
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) Integer limit) {
+        if (cursor == null && limit == null) {
+            return Pages.toResponse(userService.getAllUsers());
+        }
+        return Pages.toResponse(userService.getUsersPage(cursor, limit));
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
@@ -32,7 +57,10 @@ public class UserController {
     }
 
     @GetMapping("/{id}")
-    public User getUser(@PathVariable int id) {
+    public User getUser(@PathVariable int id, WebRequest request) {
+        if (request.checkNotModified(entityVersions.userTag(id))) {
+            return null;
+        }
         return userService.getUserById(id);
     }
 
@@ -41,10 +69,22 @@ public class UserController {
         return userService.getUserFriends(id);
     }
 
+    // Не друзья пользователя по убыванию числа общих друзей
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable int id, @RequestParam(required = false) Integer limit) {
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    // Фильмы, которые лайкали пользователи с похожими вкусами
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable int id, @RequestParam(required = false) Integer limit) {
+        return filmService.getRecommendations(id, limit);
+    }
+
+    // PENDING — заявка отправлена, CONFIRMED — встречная заявка подтверждена и пользователи стали друзьями
     @PutMapping("/{id}/friends/{friendId}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void markAsFriend(@PathVariable int id, @PathVariable int friendId) {
-        userService.makeFriends(id, friendId);
+    public Map<String, FriendshipStatus> markAsFriend(@PathVariable int id, @PathVariable int friendId) {
+        return Collections.singletonMap("status", userService.makeFriends(id, friendId));
     }
 
     @PutMapping("/{id}/friends/{friendId}/confirm")
@@ -51,6 +51,13 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
     }
 
+    @ExceptionHandler(LikeBufferFullException.class)
+    public ResponseEntity<Map<String,String>> handleLikeBufferFull(final LikeBufferFullException e) {
+        log.error("LikeBufferFullException: {}", e.getMessage());
+        Map<String,String> body = Collections.singletonMap("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
+
     // Обработка ошибок валидации
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, List<String>>> handleValidation(final MethodArgumentNotValidException e) {
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.exception;
+
+public class LikeBufferFullException extends RuntimeException {
+    public LikeBufferFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.config.HttpCacheProperties;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Счётчики версий фильмов и пользователей для ETag ответов на чтение.
+ * <p>
+ * Версия сущности хранится в слоте id mod versionSlots, поэтому память не зависит от размера таблиц.
+ * Соседи по слоту меняют версию вместе: лишняя смена ETag стоит одного полного ответа, а пропущенной
+ * смены не бывает. Отдельный счётчик списков фильмов меняется при любой записи в фильмы и лайки.
+ * <p>
+ * Версии увеличиваются после фиксации транзакции, как и индексы в памяти: откаченная запись ETag не меняет.
+ * ETag строится из момента запуска и поколения: после перезапуска счётчики начинаются заново,
+ * а {@link #invalidateAll()} сбрасывает все выданные ETag, когда записи прошли в обход сервисов.
+ */
+@Component
+public class EntityVersions {
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong filmLists = new AtomicLong();
+    private final AtomicLongArray films;
+    private final AtomicLongArray users;
+    private final int mask;
+
+    public EntityVersions(HttpCacheProperties properties) {
+        int slots = properties.versionSlots();
+        if (slots <= 0 || Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("Число слотов версий должно быть степенью двойки: " + slots);
+        }
+        films = new AtomicLongArray(slots);
+        users = new AtomicLongArray(slots);
+        mask = slots - 1;
+    }
+
+    public String filmTag(int filmId) {
+        return tag(films.get(filmId & mask));
+    }
+
+    /**
+     * ETag выборок из нескольких фильмов: популярные, по жанру и году.
+     */
+    public String filmListTag() {
+        return tag(filmLists.get());
+    }
+
+    public String userTag(int userId) {
+        return tag(users.get(userId & mask));
+    }
+
+    /**
+     * ETag справочников жанров и MPA: они меняются только миграциями, то есть с перезапуском.
+     */
+    public String referenceTag() {
+        return epoch;
+    }
+
+    public void filmChanged(int filmId) {
+        AfterCommit.run(() -> {
+            films.incrementAndGet(filmId & mask);
+            filmLists.incrementAndGet();
+        });
+    }
+
+    public void userChanged(int userId) {
+        AfterCommit.run(() -> users.incrementAndGet(userId & mask));
+    }
+
+    public void invalidateAll() {
+        AfterCommit.run(generation::incrementAndGet);
+    }
+
+    private String tag(long version) {
+        return epoch + "-" + generation.get() + "-" + version;
+    }
+}
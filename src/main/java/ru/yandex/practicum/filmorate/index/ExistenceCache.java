@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.config.ExistenceCacheProperties;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+
+/**
+ * Общий ограниченный по памяти кэш существования пользователей и фильмов.
+ * <p>
+ * Для каждого типа сущности хранится фильтр Блума по всем известным id и таблица
+ * подтверждённых базой id с прямой адресацией. Фильтр Блума не даёт ложноотрицательных
+ * ответов, поэтому «нет в фильтре» означает «нет в базе» без запроса. Попадание в таблицу
+ * подтверждённых — тоже ответ без запроса. Иначе спрашиваем базу и запоминаем положительный ответ.
+ * <p>
+ * Новые id добавляются в фильтр сразу при вставке (ещё до фиксации транзакции): лишний бит даёт
+ * лишь ложноположительный ответ, который перепроверяется базой. Удаление отдельных записей
+ * в приложении не поддерживается, при удалении всех записей кэш типа сбрасывается.
+ */
+@Slf4j
+@Component
+public class ExistenceCache {
+    private final ExistenceCacheProperties properties;
+    private final AtomicReferenceArray<Namespace> namespaces =
+            new AtomicReferenceArray<>(EntityType.values().length);
+
+    public ExistenceCache(ExistenceCacheProperties properties) {
+        this.properties = properties;
+        for (EntityType type : EntityType.values()) {
+            reset(type);
+        }
+        BloomFilter sample = namespaces.get(0).bloom;
+        log.info("Кэш существования: фильтр Блума {} бит и {} хеш-функций на тип, {} слотов подтверждённых id",
+                sample.bitCount, sample.hashCount, properties.confirmedCapacity());
+    }
+
+    public enum EntityType {
+        FILM,
+        USER
+    }
+
+    /**
+     * Проверка существования. dbCheck вызывается, только если кэш не может ответить сам.
+     */
+    public boolean exists(EntityType type, int id, IntPredicate dbCheck) {
+        Namespace namespace = namespace(type);
+        if (!namespace.bloom.mightContain(id)) {
+            return false;
+        }
+        if (namespace.isConfirmed(id)) {
+            return true;
+        }
+        boolean exists = dbCheck.test(id);
+        if (exists) {
+            namespace.confirm(id);
+        }
+        return exists;
+    }
+
+    public void register(EntityType type, int id) {
+        namespace(type).bloom.put(id);
+    }
+
+    public void reset(EntityType type) {
+        namespaces.set(type.ordinal(), new Namespace(
+                new BloomFilter(properties.expectedEntries(), properties.falsePositiveRate()),
+                properties.confirmedCapacity()));
+    }
+
+    private Namespace namespace(EntityType type) {
+        return namespaces.get(type.ordinal());
+    }
+
+    private static final class Namespace {
+        private final BloomFilter bloom;
+        // слот = id по модулю ёмкости; коллизия просто вытесняет предыдущий id
+        private final AtomicIntegerArray confirmed;
+
+        private Namespace(BloomFilter bloom, int capacity) {
+            this.bloom = bloom;
+            this.confirmed = new AtomicIntegerArray(capacity);
+        }
+
+        private boolean isConfirmed(int id) {
+            return id != 0 && confirmed.get(slot(id)) == id;
+        }
+
+        private void confirm(int id) {
+            confirmed.set(slot(id), id);
+        }
+
+        private int slot(int id) {
+            return Math.floorMod(id, confirmed.length());
+        }
+    }
+
+    /**
+     * Фильтр Блума по int-ключам на битовом массиве с атомарной установкой битов.
+     * Индексы считаются двойным хешированием (Kirsch–Mitzenmacher).
+     */
+    static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedEntries, double falsePositiveRate) {
+            int entries = Math.max(1, expectedEntries);
+            long m = (long) Math.ceil(-entries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bitCount = Math.max(64, m);
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / entries * Math.log(2)));
+            this.bits = new AtomicLongArray((int) ((bitCount + 63) / 64));
+        }
+
+        void put(int key) {
+            long hash1 = mix(key);
+            long hash2 = mix(hash1) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                long mask = 1L << (bit & 63);
+                int word = (int) (bit >>> 6);
+                bits.getAndAccumulate(word, mask, (current, m) -> current | m);
+            }
+        }
+
+        boolean mightContain(int key) {
+            long hash1 = mix(key);
+            long hash2 = mix(hash1) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // финализатор SplitMix64
+        private static long mix(long value) {
+            long z = value + 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
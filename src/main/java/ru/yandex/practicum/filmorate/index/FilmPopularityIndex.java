@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Рейтинг популярности фильмов в памяти.
+ * Хранит отсортированный индекс пар (количество лайков, id фильма), поэтому топ-N
+ * читается за O(N) без агрегации таблицы likes. Индекс строится из базы при старте
+ * и дальше обновляется инкрементально при добавлении и удалении лайков.
+ * Фильмы с одинаковым количеством лайков упорядочены по id.
+ * <p>
+ * Кроме общего рейтинга ведутся рейтинги-корзины по жанру, по году выхода и по паре (жанр, год):
+ * фильм лежит в каждой корзине, к которой относится, и при изменении лайков переставляется
+ * во всех сразу. Количество лайков у всех корзин общее, поэтому отфильтрованный топ
+ * совпадает с общим топом, из которого убраны неподходящие фильмы.
+ */
+@Component
+public class FilmPopularityIndex {
+    private static final Comparator<Entry> BY_POPULARITY = Comparator
+            .comparingInt(Entry::likes).reversed()
+            .thenComparingInt(Entry::filmId);
+    private static final int ANY = 0;
+    private static final long ALL_FILMS = bucketKey(ANY, ANY);
+
+    private final ConcurrentHashMap<Long, ConcurrentSkipListSet<Entry>> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, long[]> bucketsByFilm = new ConcurrentHashMap<>();
+
+    /**
+     * Полностью заменяет содержимое индекса.
+     */
+    public synchronized void rebuild(Collection<FilmStats> films) {
+        clear();
+        for (FilmStats film : films) {
+            Entry entry = new Entry(film.likes(), film.filmId());
+            long[] keys = bucketKeys(film.genreIds(), film.releaseDate());
+            entries.put(film.filmId(), entry);
+            bucketsByFilm.put(film.filmId(), keys);
+            for (long key : keys) {
+                bucket(key).add(entry);
+            }
+        }
+    }
+
+    /**
+     * Новый фильм без лайков.
+     */
+    public void addFilm(int filmId, Collection<Integer> genreIds, LocalDate releaseDate) {
+        updateFilm(filmId, genreIds, releaseDate);
+    }
+
+    /**
+     * Жанры или дата выхода фильма изменились: фильм переносится в новые корзины, лайки сохраняются.
+     */
+    public void updateFilm(int filmId, Collection<Integer> genreIds, LocalDate releaseDate) {
+        long[] keys = bucketKeys(genreIds, releaseDate);
+        entries.compute(filmId, (id, old) -> {
+            Entry entry = old != null ? old : new Entry(0, id);
+            long[] oldKeys = bucketsByFilm.getOrDefault(id, new long[0]);
+            for (long key : oldKeys) {
+                if (!contains(keys, key)) {
+                    bucket(key).remove(entry);
+                }
+            }
+            for (long key : keys) {
+                if (!contains(oldKeys, key)) {
+                    bucket(key).add(entry);
+                }
+            }
+            bucketsByFilm.put(id, keys);
+            return entry;
+        });
+    }
+
+    /**
+     * Изменилась только дата выхода: жанры фильма берутся из его текущих корзин.
+     */
+    public void updateReleaseDate(int filmId, LocalDate releaseDate) {
+        List<Integer> genreIds = new ArrayList<>();
+        for (long key : bucketsByFilm.getOrDefault(filmId, new long[0])) {
+            int genreId = (int) (key >>> 32);
+            if (genreId != ANY && (int) key == ANY) {
+                genreIds.add(genreId);
+            }
+        }
+        updateFilm(filmId, genreIds, releaseDate);
+    }
+
+    /**
+     * Новая запись попадает в корзины и в entries раньше, чем старая удаляется из корзин: читатель может
+     * на мгновение увидеть обе, устаревшая отсеивается в top(), но фильм не пропадает из рейтинга.
+     */
+    public void changeLikes(int filmId, int delta) {
+        Entry[] replaced = new Entry[1];
+        long[][] replacedKeys = new long[1][];
+        entries.compute(filmId, (id, old) -> {
+            int likes = Math.max(0, (old == null ? 0 : old.likes()) + delta);
+            Entry updated = new Entry(likes, id);
+            long[] keys = bucketsByFilm.computeIfAbsent(id, filmKey -> new long[]{ALL_FILMS});
+            for (long key : keys) {
+                bucket(key).add(updated);
+            }
+            replaced[0] = old;
+            replacedKeys[0] = keys;
+            return updated;
+        });
+        Entry old = replaced[0];
+        if (old == null) {
+            return;
+        }
+        // Удаление — под блокировкой той же записи entries и только если старое значение не стало снова
+        // текущим: лайк и снятие лайка подряд возвращают фильму запись, равную старой.
+        // Корзины — те, где старая запись лежала: updateFilm переносит уже новую запись
+        entries.computeIfPresent(filmId, (id, current) -> {
+            if (!current.equals(old)) {
+                for (long key : replacedKeys[0]) {
+                    bucket(key).remove(old);
+                }
+            }
+            return current;
+        });
+    }
+
+    public void clear() {
+        entries.clear();
+        bucketsByFilm.clear();
+        buckets.clear();
+    }
+
+    public int likesOf(int filmId) {
+        Entry entry = entries.get(filmId);
+        return entry == null ? 0 : entry.likes();
+    }
+
+    /**
+     * Id самых популярных фильмов в порядке убывания количества лайков.
+     */
+    public List<Integer> top(int count) {
+        return top(count, null, null);
+    }
+
+    /**
+     * Id самых популярных фильмов жанра и/или года выхода. Null — фильтр не задан.
+     */
+    public List<Integer> top(int count, Integer genreId, Integer year) {
+        ConcurrentSkipListSet<Entry> ranking = buckets.get(
+                bucketKey(genreId != null ? genreId : ANY, year != null ? year : ANY));
+        if (ranking == null) {
+            return List.of();
+        }
+        List<Integer> result = new ArrayList<>(Math.min(count, entries.size()));
+        for (Entry entry : ranking) {
+            if (result.size() >= count) {
+                break;
+            }
+            if (entry.equals(entries.get(entry.filmId()))) {
+                result.add(entry.filmId());
+            }
+        }
+        return result;
+    }
+
+    private ConcurrentSkipListSet<Entry> bucket(long key) {
+        return buckets.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(BY_POPULARITY));
+    }
+
+    // Корзины фильма: все фильмы, год, каждый жанр и каждая пара (жанр, год)
+    private static long[] bucketKeys(Collection<Integer> genreIds, LocalDate releaseDate) {
+        int year = releaseDate != null ? releaseDate.getYear() : ANY;
+        int genres = genreIds != null ? genreIds.size() : 0;
+        long[] keys = new long[year != ANY ? 2 + 2 * genres : 1 + genres];
+        int n = 0;
+        keys[n++] = ALL_FILMS;
+        if (year != ANY) {
+            keys[n++] = bucketKey(ANY, year);
+        }
+        if (genreIds != null) {
+            for (int genreId : genreIds) {
+                keys[n++] = bucketKey(genreId, ANY);
+                if (year != ANY) {
+                    keys[n++] = bucketKey(genreId, year);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static long bucketKey(int genreId, int year) {
+        return ((long) genreId << 32) | (year & 0xFFFFFFFFL);
+    }
+
+    private static boolean contains(long[] keys, long key) {
+        for (long k : keys) {
+            if (k == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Данные фильма для построения индекса.
+     */
+    public record FilmStats(int filmId, int likes, Collection<Integer> genreIds, LocalDate releaseDate) {
+    }
+
+    private record Entry(int likes, int filmId) {
+    }
+}
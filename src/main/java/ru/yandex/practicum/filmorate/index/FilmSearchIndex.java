@@ -0,0 +1,311 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.config.SearchProperties;
+import ru.yandex.practicum.filmorate.model.FilmSearchField;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static ru.yandex.practicum.filmorate.index.IntArrays.EMPTY;
+import static ru.yandex.practicum.filmorate.index.IntArrays.grow;
+import static ru.yandex.practicum.filmorate.index.IntArrays.insertSorted;
+import static ru.yandex.practicum.filmorate.index.IntArrays.mergeSorted;
+import static ru.yandex.practicum.filmorate.index.IntArrays.removeSorted;
+import static ru.yandex.practicum.filmorate.index.IntArrays.row;
+
+/**
+ * Обратный индекс по названиям и описаниям фильмов для полнотекстового поиска.
+ * <p>
+ * Текст разбивается на слова из букв и цифр (кириллица и латиница одинаково), слова приводятся
+ * к нижнему регистру, «ё» заменяется на «е». Словарь терминов — отсортированная карта «слово → id
+ * термина», поэтому все термины с заданным префиксом лежат подряд. Для каждого термина хранится
+ * отсортированный массив {@code (id фильма << 1) | поле}, для каждого фильма — массив
+ * {@code (id термина << 1) | поле}, по которому фильм убирается из индекса при изменении.
+ * Память — 8 байт на каждое различное слово поля фильма плюс словарь.
+ * <p>
+ * Запрос: каждое слово запроса — префикс, фильм должен подойти под все слова. Вес слова для фильма —
+ * лучшее из совпадений: название весит вдвое больше описания, точное совпадение — вдвое больше
+ * префиксного. Фильмы упорядочены по сумме весов, затем по количеству лайков из
+ * {@link FilmPopularityIndex}, затем по id.
+ * <p>
+ * Изменения вносятся из FilmRepositoryImpl после фиксации транзакции.
+ */
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    private static final int MAX_ID = Integer.MAX_VALUE >>> 1;
+    private static final FilmSearchField[] FIELDS = FilmSearchField.values();
+    private static final Comparator<Hit> WORST_FIRST = Comparator
+            .comparingInt(Hit::score)
+            .thenComparingInt(Hit::likes)
+            .thenComparing(Comparator.comparingInt(Hit::filmId).reversed());
+
+    private final FilmPopularityIndex popularityIndex;
+    private final SearchProperties properties;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private TreeMap<String, Integer> termIds = new TreeMap<>();
+    private int[][] postings = new int[0][];
+    private int[][] termsByFilm = new int[0][];
+
+    public Loader loader() {
+        return new Loader();
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return termIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Новые или изменённые фильмы: прежние слова фильма убираются, новые добавляются.
+     * Массивы терминов сливаются с пачкой один раз, а не копируются на каждый фильм.
+     */
+    public void addFilms(Collection<Document> films) {
+        films.forEach(film -> checkId(film.filmId()));
+        lock.writeLock().lock();
+        try {
+            IntTableBuilder added = new IntTableBuilder();
+            for (Document film : films) {
+                removeFilmLocked(film.filmId());
+                int[] terms = new int[0];
+                for (FilmSearchField field : FIELDS) {
+                    for (String token : tokens(film.textOf(field))) {
+                        int term = encode(termId(token), field);
+                        terms = insertSorted(terms, term);
+                        added.add(term >>> 1, encode(film.filmId(), field));
+                    }
+                }
+                if (film.filmId() >= termsByFilm.length) {
+                    termsByFilm = grow(termsByFilm, Math.max(film.filmId() + 1, termsByFilm.length * 2));
+                }
+                termsByFilm[film.filmId()] = terms.length == 0 ? EMPTY : terms;
+            }
+            int[][] rows = added.build(0);
+            for (int termId = 0; termId < rows.length; termId++) {
+                if (rows[termId].length > 0) {
+                    postings[termId] = mergeSorted(postings[termId], rows[termId]);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateFilm(int filmId, String title, String description) {
+        addFilms(List.of(new Document(filmId, title, description)));
+    }
+
+    public void clear() {
+        install(new TreeMap<>(), new int[0][], new int[0][]);
+    }
+
+    public long estimatedHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return IntArrays.heapBytes(postings) + IntArrays.heapBytes(termsByFilm);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * До limit id фильмов, подходящих под все слова запроса, по убыванию релевантности и лайков.
+     */
+    public int[] search(String query, Set<FilmSearchField> fields, int limit) {
+        Set<String> tokens = tokens(query);
+        if (tokens.isEmpty() || fields.isEmpty()) {
+            return EMPTY;
+        }
+        IntCounter scores = null;
+        lock.readLock().lock();
+        try {
+            for (String token : tokens) {
+                IntCounter matches = match(token, fields);
+                scores = scores == null ? matches : intersect(scores, matches);
+                if (scores.size() == 0) {
+                    return EMPTY;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rank(scores, limit);
+    }
+
+    /**
+     * Слова текста в нижнем регистре без повторов, в порядке появления.
+     */
+    static Set<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); ) {
+            int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(codePoint)) {
+                int folded = Character.toLowerCase(codePoint);
+                token.appendCodePoint(folded == 'ё' ? 'е' : folded);
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return tokens;
+    }
+
+    // Лучший вес слова запроса для каждого фильма среди терминов с этим префиксом
+    private IntCounter match(String token, Set<FilmSearchField> fields) {
+        IntCounter best = new IntCounter();
+        int expanded = 0;
+        for (Map.Entry<String, Integer> term : termIds.tailMap(token, true).entrySet()) {
+            if (!term.getKey().startsWith(token) || expanded++ >= properties.maxPrefixTerms()) {
+                break;
+            }
+            boolean exact = term.getKey().length() == token.length();
+            for (int entry : postings[term.getValue()]) {
+                FilmSearchField field = FIELDS[entry & 1];
+                if (fields.contains(field)) {
+                    best.max(entry >>> 1, weight(field, exact));
+                }
+            }
+        }
+        return best;
+    }
+
+    private static IntCounter intersect(IntCounter a, IntCounter b) {
+        IntCounter smaller = a.size() <= b.size() ? a : b;
+        IntCounter larger = smaller == a ? b : a;
+        IntCounter result = new IntCounter(smaller.size());
+        for (int filmId : smaller.keys()) {
+            int other = larger.get(filmId);
+            if (other > 0) {
+                result.add(filmId, smaller.get(filmId) + other);
+            }
+        }
+        return result;
+    }
+
+    // Топ-limit через кучу размера limit: худший из отобранных фильмов всегда на вершине
+    private int[] rank(IntCounter scores, int limit) {
+        PriorityQueue<Hit> heap = new PriorityQueue<>(WORST_FIRST);
+        for (int filmId : scores.keys()) {
+            Hit hit = new Hit(filmId, scores.get(filmId), popularityIndex.likesOf(filmId));
+            if (heap.size() < limit) {
+                heap.add(hit);
+            } else if (WORST_FIRST.compare(hit, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(hit);
+            }
+        }
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll().filmId();
+        }
+        return result;
+    }
+
+    private static int weight(FilmSearchField field, boolean exact) {
+        return (field == FilmSearchField.TITLE ? 2 : 1) * (exact ? 2 : 1);
+    }
+
+    private int termId(String token) {
+        Integer id = termIds.get(token);
+        if (id != null) {
+            return id;
+        }
+        int newId = termIds.size();
+        termIds.put(token, newId);
+        if (newId >= postings.length) {
+            postings = grow(postings, Math.max(newId + 1, postings.length * 2));
+        }
+        return newId;
+    }
+
+    private void removeFilmLocked(int filmId) {
+        for (int term : row(termsByFilm, filmId)) {
+            int termId = term >>> 1;
+            postings[termId] = removeSorted(postings[termId], encode(filmId, FIELDS[term & 1]));
+        }
+        if (filmId < termsByFilm.length) {
+            termsByFilm[filmId] = EMPTY;
+        }
+    }
+
+    private void install(TreeMap<String, Integer> termIds, int[][] postings, int[][] termsByFilm) {
+        lock.writeLock().lock();
+        try {
+            this.termIds = termIds;
+            this.postings = postings;
+            this.termsByFilm = termsByFilm;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int encode(int id, FilmSearchField field) {
+        return (id << 1) | field.ordinal();
+    }
+
+    private static void checkId(int filmId) {
+        if (filmId < 0 || filmId > MAX_ID) {
+            throw new IllegalArgumentException("Id фильма вне допустимого диапазона поискового индекса: " + filmId);
+        }
+    }
+
+    /**
+     * Текст фильма для индексации.
+     */
+    public record Document(int filmId, String title, String description) {
+        String textOf(FilmSearchField field) {
+            return field == FilmSearchField.TITLE ? title : description;
+        }
+    }
+
+    private record Hit(int filmId, int score, int likes) {
+    }
+
+    /**
+     * Начальная загрузка из таблицы films: словарь и массивы строятся отдельно от рабочего индекса,
+     * каждый массив сортируется один раз в {@link #install()}. Индекс подменяется целиком.
+     */
+    public final class Loader {
+        private final TreeMap<String, Integer> terms = new TreeMap<>();
+        private final IntTableBuilder films = new IntTableBuilder();
+        private final IntTableBuilder filmTerms = new IntTableBuilder();
+
+        private Loader() {
+        }
+
+        public void add(int filmId, String title, String description) {
+            checkId(filmId);
+            Document film = new Document(filmId, title, description);
+            for (FilmSearchField field : FIELDS) {
+                for (String token : tokens(film.textOf(field))) {
+                    int termId = terms.computeIfAbsent(token, t -> terms.size());
+                    films.add(termId, encode(filmId, field));
+                    filmTerms.add(filmId, encode(termId, field));
+                }
+            }
+        }
+
+        public void install() {
+            FilmSearchIndex.this.install(terms, films.build(terms.size()), filmTerms.build(0));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.config.SuggestionProperties;
+import ru.yandex.practicum.filmorate.index.SocialGraph.FriendsStamp;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Рекомендации друзей: пользователи, которые ещё не в друзьях, по убыванию числа общих друзей,
+ * при равенстве — по возрастанию id. Друзья понимаются так же, как в UserRepositoryImpl.getFriends.
+ * <p>
+ * Считается обходом графа на два шага со счётчиками {@link IntCounter} на примитивных массивах.
+ * Обход ограничен {@link SuggestionProperties#maxVisited()} связями второго уровня, поэтому время
+ * ответа не зависит от размера графа. Результат кэшируется на пользователя вместе с
+ * {@link SocialGraph#friendsStamp(int)}: запись пересчитывается, только если изменились друзья
+ * пользователя или друзья его друзей. Проверка отметки — проход по друзьям без второго шага обхода.
+ * Кэш — {@link SuggestionProperties#cacheSize()} ячеек по id пользователя, как в ExistenceCache:
+ * пользователь с тем же номером ячейки вытесняет предыдущего, остальные записи не трогаются.
+ */
+@Component
+public class FriendSuggestions {
+    private final SocialGraph socialGraph;
+    private final SuggestionProperties properties;
+    private final AtomicReferenceArray<Ranking> cache;
+
+    public FriendSuggestions(SocialGraph socialGraph, SuggestionProperties properties) {
+        this.socialGraph = socialGraph;
+        this.properties = properties;
+        this.cache = new AtomicReferenceArray<>(properties.cacheSize());
+    }
+
+    /**
+     * До limit id рекомендуемых пользователей в порядке убывания числа общих друзей.
+     */
+    public int[] suggest(int userId, int limit) {
+        int slot = Math.floorMod(userId, cache.length());
+        Ranking ranking = cache.get(slot);
+        // Отметка снимается до обхода: изменение во время расчёта даст другую отметку при следующем запросе
+        FriendsStamp stamp = socialGraph.friendsStamp(userId);
+        if (ranking == null || ranking.userId() != userId || !ranking.stamp().equals(stamp)) {
+            ranking = new Ranking(userId, stamp, rank(userId));
+            cache.set(slot, ranking);
+        }
+        int[] ids = ranking.userIds();
+        return ids.length <= limit ? ids : Arrays.copyOf(ids, limit);
+    }
+
+    // Полный рейтинг до maxLimit, чтобы кэш отвечал на запрос с любым допустимым limit
+    private int[] rank(int userId) {
+        int[] friends = socialGraph.friendsOf(userId);
+        MutualCounter counter = new MutualCounter(userId, friends, properties.maxVisited());
+        for (int friendId : friends) {
+            if (counter.isExhausted()) {
+                break;
+            }
+            socialGraph.forEachFriend(friendId, counter);
+        }
+        return counter.top(properties.maxLimit());
+    }
+
+    private record Ranking(int userId, FriendsStamp stamp, int[] userIds) {
+    }
+
+    // Считает общих друзей кандидатов, пропуская самого пользователя и его друзей
+    private static final class MutualCounter implements IntConsumer {
+        private final int userId;
+        private final int[] friends;
+        private final int maxVisited;
+        private final IntCounter counts = new IntCounter();
+        private int visited;
+
+        MutualCounter(int userId, int[] friends, int maxVisited) {
+            this.userId = userId;
+            this.friends = friends;
+            this.maxVisited = maxVisited;
+        }
+
+        boolean isExhausted() {
+            return visited >= maxVisited;
+        }
+
+        @Override
+        public void accept(int candidateId) {
+            if (visited++ >= maxVisited || candidateId == userId
+                    || Arrays.binarySearch(friends, candidateId) >= 0) {
+                return;
+            }
+            counts.add(candidateId, 1);
+        }
+
+        int[] top(int limit) {
+            return counts.top(limit);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными int-массивами и таблицами таких массивов, индексированными по id.
+ * Массивы не изменяются на месте: вставка и удаление возвращают новый массив.
+ */
+final class IntArrays {
+    static final int[] EMPTY = new int[0];
+
+    private IntArrays() {
+    }
+
+    static int[] row(int[][] table, int id) {
+        return id >= 0 && id < table.length ? table[id] : EMPTY;
+    }
+
+    static int[][] grow(int[][] table, int length) {
+        int oldLength = table.length;
+        int[][] grown = Arrays.copyOf(table, length);
+        Arrays.fill(grown, oldLength, length, EMPTY);
+        return grown;
+    }
+
+    static int[] insertSorted(int[] row, int value) {
+        int index = Arrays.binarySearch(row, value);
+        return index >= 0 ? row : insertAt(row, -index - 1, value);
+    }
+
+    static int[] removeSorted(int[] row, int value) {
+        int index = Arrays.binarySearch(row, value);
+        return index < 0 ? row : removeAt(row, index);
+    }
+
+    /**
+     * Слияние отсортированного массива с отсортированными значениями, повторы не добавляются.
+     * Вставка пачки за один проход вместо копирования массива на каждое значение.
+     */
+    static int[] mergeSorted(int[] row, int[] values) {
+        int[] result = new int[row.length + values.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < row.length || j < values.length) {
+            int next = j == values.length || (i < row.length && row[i] <= values[j]) ? row[i++] : values[j++];
+            if (size == 0 || result[size - 1] != next) {
+                result[size++] = next;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    static int[] insertAt(int[] row, int index, int value) {
+        int[] result = new int[row.length + 1];
+        System.arraycopy(row, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(row, index, result, index + 1, row.length - index);
+        return result;
+    }
+
+    static int[] removeAt(int[] row, int index) {
+        if (row.length == 1) {
+            return EMPTY;
+        }
+        int[] result = new int[row.length - 1];
+        System.arraycopy(row, 0, result, 0, index);
+        System.arraycopy(row, index + 1, result, index, row.length - index - 1);
+        return result;
+    }
+
+    /**
+     * Оценка памяти под таблицу и её непустые строки (сжатые ссылки, выравнивание по 8 байт).
+     */
+    static long heapBytes(int[][] table) {
+        long bytes = align(16 + 4L * table.length);
+        for (int[] row : table) {
+            if (row != EMPTY) {
+                bytes += align(16 + 4L * row.length);
+            }
+        }
+        return bytes;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
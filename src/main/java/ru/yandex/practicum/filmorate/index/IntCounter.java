@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+
+/**
+ * Счётчики по положительным int-ключам в открытой хеш-таблице на примитивных массивах.
+ * 0 служит признаком пустой ячейки, поэтому ключи должны быть больше нуля (id из базы).
+ * Не потокобезопасен: каждый поток считает в свой экземпляр, затем результаты сливаются {@link #addAll}.
+ */
+final class IntCounter {
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    IntCounter() {
+        this(64);
+    }
+
+    IntCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(int key, int delta) {
+        int slot = slotOf(keys, key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                resize();
+                slot = slotOf(keys, key);
+            }
+        }
+        counts[slot] += delta;
+    }
+
+    // Оставляет по ключу наибольшее из значений
+    void max(int key, int value) {
+        int slot = slotOf(keys, key);
+        if (keys[slot] == 0) {
+            add(key, value);
+        } else if (counts[slot] < value) {
+            counts[slot] = value;
+        }
+    }
+
+    void addAll(IntCounter other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != 0) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * До limit ключей по убыванию счётчика, при равенстве — по возрастанию ключа.
+     * Пара (-count, key) упакована в long, поэтому сортировка по возрастанию даёт нужный порядок.
+     */
+    int[] top(int limit) {
+        long[] packed = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                packed[n++] = ((long) -counts[i] << 32) | keys[i];
+            }
+        }
+        Arrays.sort(packed);
+        int[] result = new int[Math.min(limit, n)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) packed[i];
+        }
+        return result;
+    }
+
+    int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int key : keys) {
+            if (key != 0) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    int get(int key) {
+        int slot = slotOf(keys, key);
+        return keys[slot] == 0 ? 0 : counts[slot];
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldCounts.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int slotOf(int[] keys, int key) {
+        int mask = keys.length - 1;
+        int hash = key * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
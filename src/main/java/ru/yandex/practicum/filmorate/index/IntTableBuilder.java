@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+
+import static ru.yandex.practicum.filmorate.index.IntArrays.EMPTY;
+import static ru.yandex.practicum.filmorate.index.IntArrays.grow;
+
+/**
+ * Построение таблицы отсортированных int-массивов при начальной загрузке из базы:
+ * значения дописываются в растущие строки без сортировки, каждая строка сортируется один раз в {@link #build}.
+ */
+final class IntTableBuilder {
+    private int[][] rows = new int[0][];
+    private int[] sizes = new int[0];
+
+    int length() {
+        return rows.length;
+    }
+
+    void add(int id, int value) {
+        ensure(id);
+        int[] row = rows[id];
+        if (sizes[id] == row.length) {
+            row = Arrays.copyOf(row, Math.max(4, row.length * 2));
+            rows[id] = row;
+        }
+        row[sizes[id]++] = value;
+    }
+
+    /**
+     * Готовая таблица длиной не меньше minLength. Строитель после этого использовать нельзя.
+     */
+    int[][] build(int minLength) {
+        int[][] table = rows.length >= minLength ? rows : grow(rows, minLength);
+        for (int id = 0; id < rows.length; id++) {
+            int size = sizes[id];
+            if (size == 0) {
+                table[id] = EMPTY;
+                continue;
+            }
+            int[] row = size == rows[id].length ? rows[id] : Arrays.copyOf(rows[id], size);
+            Arrays.sort(row);
+            table[id] = row;
+        }
+        return table;
+    }
+
+    private void ensure(int id) {
+        if (id < rows.length) {
+            return;
+        }
+        int length = Math.max(id + 1, rows.length * 2);
+        rows = grow(rows, length);
+        sizes = Arrays.copyOf(sizes, length);
+    }
+}
@@ -0,0 +1,210 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.config.LikeBufferProperties;
+import ru.yandex.practicum.filmorate.exception.LikeBufferFullException;
+import ru.yandex.practicum.filmorate.model.LikeAction;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Буфер отложенной записи лайков: для каждой пары (фильм, пользователь) хранится желаемое состояние
+ * и состояние в базе на момент первого события. Лайк и снятие лайка одной пары схлопываются:
+ * если пара вернулась к состоянию в базе, запись из буфера удаляется и в базу ничего не пишется.
+ * <p>
+ * Сброс идёт в два шага. {@link #beginFlush()} подменяет буфер пустым, а снятые записи остаются
+ * видимыми для чтения, пока транзакция записи не завершится. {@link #endFlush(boolean)} после фиксации
+ * их забывает, после отката возвращает в буфер. Состояние пары читается по порядку: буфер,
+ * сбрасываемые записи, база. Поэтому между приёмом лайка и фиксацией сброса оно не «мигает».
+ * <p>
+ * Подмена буфера — под эксклюзивной блокировкой, приём событий — под общей.
+ * Поэтому событие не может попасть в уже снятый буфер. Индексы в памяти обновляются при приёме
+ * под той же общей блокировкой, и перестройка индексов из базы ({@link #whilePaused(Consumer)})
+ * не теряет событий, принятых во время перестройки.
+ */
+@Component
+@RequiredArgsConstructor
+public class LikeBuffer {
+    private final LikeBufferProperties properties;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ConcurrentHashMap<Long, Pending> pending = new ConcurrentHashMap<>();
+    private volatile Map<Long, Pending> flushing = Map.of();
+    private volatile Runnable flushRequest = () -> {
+    };
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Действие, вызываемое, когда в буфере набралось maxPending пар.
+     */
+    public void onFull(Runnable flushRequest) {
+        this.flushRequest = flushRequest;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Состояние пары с учётом буфера. Null — в буфере пары нет, состояние нужно читать из базы.
+     */
+    public Boolean likedState(int filmId, int userId) {
+        long key = pairKey(filmId, userId);
+        lock.readLock().lock();
+        try {
+            Pending entry = pending.get(key);
+            if (entry == null) {
+                entry = flushing.get(key);
+            }
+            return entry == null ? null : entry.liked();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Принимает лайк (liked = true) или его снятие. storedLiked читает состояние из базы и вызывается,
+     * только если пары нет ни в буфере, ни среди сбрасываемых записей, — до {@code compute}: запрос к базе
+     * внутри него держал бы монитор корзины ConcurrentHashMap и занимал поток-носитель виртуального потока.
+     * onChange вызывается, если состояние пары изменилось, до снятия блокировки приёма.
+     * Новая пара не принимается, если в буфере вместе со сбрасываемыми записями уже
+     * {@link LikeBufferProperties#maxBuffered()} пар: так буфер ограничен, пока база отклоняет сброс.
+     * Возвращает true, если состояние пары изменилось.
+     */
+    public boolean apply(int filmId, int userId, boolean liked, BooleanSupplier storedLiked, Runnable onChange) {
+        long key = pairKey(filmId, userId);
+        boolean[] changed = new boolean[1];
+        int size;
+        lock.readLock().lock();
+        try {
+            // Исходное состояние пары, когда её нет в буфере. Под общей блокировкой сброс не начнётся и база
+            // для пары не изменится; запись буфера, увиденная здесь, хранит то же исходное состояние
+            Pending flushed = flushing.get(key);
+            Pending seen = pending.get(key);
+            boolean base = flushed != null ? flushed.liked()
+                    : seen != null ? seen.stored()
+                    : storedLiked.getAsBoolean();
+            if (seen == null && base != liked && pending.size() + flushing.size() >= properties.maxBuffered()) {
+                throw new LikeBufferFullException("Буфер лайков переполнен, повторите запрос позже");
+            }
+            pending.compute(key, (k, entry) -> {
+                boolean current = entry != null ? entry.liked() : base;
+                if (current == liked) {
+                    return entry;
+                }
+                changed[0] = true;
+                boolean stored = entry != null ? entry.stored() : base;
+                return liked == stored ? null : new Pending(liked, stored);
+            });
+            size = pending.size();
+            if (changed[0]) {
+                onChange.run();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (changed[0] && size >= properties.maxPending()) {
+            flushRequest.run();
+        }
+        return changed[0];
+    }
+
+    /**
+     * Снимает содержимое буфера для записи в базу. До {@link #endFlush(boolean)} следующий сброс не начинается.
+     */
+    public List<LikeChange> beginFlush() {
+        lock.writeLock().lock();
+        try {
+            if (!flushing.isEmpty()) {
+                throw new IllegalStateException("Предыдущий сброс буфера лайков не завершён");
+            }
+            flushing = pending;
+            pending = new ConcurrentHashMap<>();
+            return toChanges(flushing);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет action при остановленном приёме событий. action получает события буфера, ещё не записанные
+     * в базу: индекс, перестроенный из базы, по ним догоняет принятое состояние. Вызывается между сбросами,
+     * иначе неизвестно, какие из сбрасываемых записей уже в базе.
+     */
+    public void whilePaused(Consumer<List<LikeChange>> action) {
+        lock.writeLock().lock();
+        try {
+            if (!flushing.isEmpty()) {
+                throw new IllegalStateException("Буфер лайков сбрасывается");
+            }
+            action.accept(toChanges(pending));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Завершает сброс. После отката снятые записи возвращаются в буфер: события, принятые во время сброса,
+     * считали исходным состоянием результат сброса и пересчитываются от состояния в базе.
+     */
+    public void endFlush(boolean committed) {
+        lock.writeLock().lock();
+        try {
+            if (!committed) {
+                flushing.forEach((key, flushed) -> pending.compute(key, (k, entry) -> {
+                    if (entry == null) {
+                        return flushed;
+                    }
+                    return entry.liked() == flushed.stored() ? null : new Pending(entry.liked(), flushed.stored());
+                }));
+            }
+            flushing = Map.of();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            pending = new ConcurrentHashMap<>();
+            flushing = Map.of();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static List<LikeChange> toChanges(Map<Long, Pending> entries) {
+        List<LikeChange> changes = new ArrayList<>(entries.size());
+        entries.forEach((key, entry) -> changes.add(LikeChange.builder()
+                .filmId((int) (key >>> 32))
+                .userId((int) (long) key)
+                .action(entry.liked() ? LikeAction.LIKE : LikeAction.UNLIKE)
+                .build()));
+        return changes;
+    }
+
+    private static long pairKey(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    // Желаемое состояние пары и состояние в базе до первого события в буфере
+    private record Pending(boolean liked, boolean stored) {
+    }
+}
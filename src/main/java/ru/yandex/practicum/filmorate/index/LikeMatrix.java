@@ -0,0 +1,199 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.config.RecommendationProperties;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+import static ru.yandex.practicum.filmorate.index.IntArrays.EMPTY;
+import static ru.yandex.practicum.filmorate.index.IntArrays.grow;
+import static ru.yandex.practicum.filmorate.index.IntArrays.insertSorted;
+import static ru.yandex.practicum.filmorate.index.IntArrays.removeSorted;
+import static ru.yandex.practicum.filmorate.index.IntArrays.row;
+
+/**
+ * Матрица лайков в памяти для рекомендаций фильмов: для каждого пользователя — отсортированный
+ * массив id понравившихся фильмов, для каждого фильма — отсортированный массив id лайкнувших.
+ * Память — 8 байт на лайк плюс заголовки массивов: 10 млн лайков занимают около 80 МБ.
+ * <p>
+ * Рекомендации: пересечение лайков пользователя с каждым другим считается через обратный индекс
+ * «фильм → пользователи», по частям массива лайков пользователя параллельно в общем пуле ForkJoin.
+ * Берутся {@link RecommendationProperties#neighbours()} самых похожих пользователей, их фильмы,
+ * которых пользователь ещё не лайкал, получают вес, равный размеру пересечения, и сортируются по весу.
+ * <p>
+ * Изменения вносятся из FilmRepositoryImpl после фиксации транзакции.
+ */
+@Component
+@RequiredArgsConstructor
+public class LikeMatrix {
+    // Сколько записей обратного индекса нужно просмотреть, чтобы параллельный расчёт окупился
+    private static final int PARALLEL_THRESHOLD = 50_000;
+
+    private final RecommendationProperties properties;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[][] filmsByUser = new int[0][];
+    private int[][] usersByFilm = new int[0][];
+    private long likeCount;
+
+    public Loader loader() {
+        return new Loader();
+    }
+
+    public long likeCount() {
+        lock.readLock().lock();
+        try {
+            return likeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            if (userId >= filmsByUser.length) {
+                filmsByUser = grow(filmsByUser, grownLength(filmsByUser.length, userId));
+            }
+            if (filmId >= usersByFilm.length) {
+                usersByFilm = grow(usersByFilm, grownLength(usersByFilm.length, filmId));
+            }
+            int[] films = filmsByUser[userId];
+            int[] updated = insertSorted(films, filmId);
+            if (updated == films) {
+                return;
+            }
+            filmsByUser[userId] = updated;
+            usersByFilm[filmId] = insertSorted(usersByFilm[filmId], userId);
+            likeCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            int[] films = row(filmsByUser, userId);
+            int[] updated = removeSorted(films, filmId);
+            if (updated == films) {
+                return;
+            }
+            filmsByUser[userId] = updated;
+            usersByFilm[filmId] = removeSorted(usersByFilm[filmId], userId);
+            likeCount--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        install(new int[0][], new int[0][], 0);
+    }
+
+    public long estimatedHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return IntArrays.heapBytes(filmsByUser) + IntArrays.heapBytes(usersByFilm);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * До limit id рекомендуемых фильмов по убыванию веса, при равенстве — по возрастанию id.
+     */
+    public int[] recommend(int userId, int limit) {
+        lock.readLock().lock();
+        try {
+            int[] liked = row(filmsByUser, userId);
+            if (liked.length == 0) {
+                return EMPTY;
+            }
+            IntCounter overlap = countOverlap(userId, liked, usersByFilm);
+            IntCounter scores = new IntCounter();
+            for (int neighbourId : overlap.top(properties.neighbours())) {
+                int weight = overlap.get(neighbourId);
+                for (int filmId : filmsByUser[neighbourId]) {
+                    if (Arrays.binarySearch(liked, filmId) < 0) {
+                        scores.add(filmId, weight);
+                    }
+                }
+            }
+            return scores.top(limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Размер пересечения лайков userId с каждым пользователем, у которого оно не пустое.
+    // Вызывается под блокировкой чтения: писатели ждут, пока рабочие потоки читают массивы.
+    private static IntCounter countOverlap(int userId, int[] liked, int[][] usersByFilm) {
+        long work = 0;
+        for (int filmId : liked) {
+            work += usersByFilm[filmId].length;
+        }
+        int parts = work < PARALLEL_THRESHOLD
+                ? 1
+                : Math.min(liked.length, ForkJoinPool.getCommonPoolParallelism() + 1);
+        IntStream partIndexes = IntStream.range(0, parts);
+        return (parts > 1 ? partIndexes.parallel() : partIndexes)
+                .mapToObj(part -> {
+                    IntCounter counter = new IntCounter();
+                    for (int i = part; i < liked.length; i += parts) {
+                        for (int otherId : usersByFilm[liked[i]]) {
+                            if (otherId != userId) {
+                                counter.add(otherId, 1);
+                            }
+                        }
+                    }
+                    return counter;
+                })
+                .reduce((left, right) -> {
+                    left.addAll(right);
+                    return left;
+                })
+                .orElseGet(IntCounter::new);
+    }
+
+    private static int grownLength(int length, int id) {
+        return Math.max(id + 1, length + (length >> 1));
+    }
+
+    private void install(int[][] filmsByUser, int[][] usersByFilm, long likeCount) {
+        lock.writeLock().lock();
+        try {
+            this.filmsByUser = filmsByUser;
+            this.usersByFilm = usersByFilm;
+            this.likeCount = likeCount;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Начальная загрузка из таблицы likes. Матрица подменяется целиком.
+     */
+    public final class Loader {
+        private final IntTableBuilder films = new IntTableBuilder();
+        private final IntTableBuilder users = new IntTableBuilder();
+        private long likes;
+
+        private Loader() {
+        }
+
+        public void add(int filmId, int userId) {
+            films.add(userId, filmId);
+            users.add(filmId, userId);
+            likes++;
+        }
+
+        public void install() {
+            LikeMatrix.this.install(films.build(0), users.build(0), likes);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+import static ru.yandex.practicum.filmorate.index.IntArrays.grow;
+import static ru.yandex.practicum.filmorate.index.IntArrays.insertAt;
+import static ru.yandex.practicum.filmorate.index.IntArrays.insertSorted;
+import static ru.yandex.practicum.filmorate.index.IntArrays.removeAt;
+import static ru.yandex.practicum.filmorate.index.IntArrays.removeSorted;
+import static ru.yandex.practicum.filmorate.index.IntArrays.row;
+
+/**
+ * Граф дружбы в памяти на примитивных массивах, без упакованных Integer.
+ * <p>
+ * Каждая строка таблицы friends (user1_id → user2_id) хранится в отсортированном массиве исходящих
+ * связей user1_id. Id друга упакован вместе с флагом подтверждения: {@code (id << 1) | confirmed},
+ * поэтому порядок по id сохраняется, а отдельный массив флагов не нужен. Подтверждённая строка
+ * дополнительно попадает в отсортированный массив входящих связей user2_id.
+ * Друзья пользователя в терминах UserRepositoryImpl.getFriends — объединение исходящих связей
+ * и подтверждённых входящих, то есть слияние двух отсортированных массивов.
+ * <p>
+ * Память: 4 байта на строку friends плюс 4 байта на каждую подтверждённую строку, плюс заголовки
+ * массивов (16 байт на непустой массив), две таблицы ссылок по 4 байта на пользователя и версии
+ * по 8 байт на пользователя. Для 1 млн пользователей и 50 млн строк, если все они подтверждены:
+ * 200 МБ + 200 МБ + 32 МБ + 8 МБ + 8 МБ ≈ 450 МБ. Фактическая оценка пишется в лог при загрузке.
+ * <p>
+ * Читатели работают под общей блокировкой, изменения — под эксклюзивной. Изменения вносятся
+ * из UserRepositoryImpl после фиксации транзакции. Каждое увеличивает версию пользователей, чей
+ * список друзей мог измениться, а полная замена графа — {@link #generation()}. Версии только растут,
+ * поэтому по {@link #friendsStamp(int)} видно, менялись ли друзья пользователя и друзья его друзей.
+ */
+@Component
+public class SocialGraph {
+    private static final int MAX_ID = Integer.MAX_VALUE >>> 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong generation = new AtomicLong();
+
+    private int[][] outgoing = new int[0][];
+    private int[][] incomingConfirmed = new int[0][];
+    private long[] versions = new long[0];
+    private long edgeCount;
+
+    public Loader loader() {
+        return new Loader();
+    }
+
+    /**
+     * Номер полной замены графа: загрузки или очистки.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Версии, от которых зависят выборки по друзьям друзей пользователя. Версия самого пользователя
+     * меняется вместе с его списком друзей; пока она та же, список прежний, и сумма версий друзей
+     * растёт при любом изменении их списков. Равные отметки означают, что друзья и друзья друзей
+     * не менялись.
+     */
+    public FriendsStamp friendsStamp(int userId) {
+        lock.readLock().lock();
+        try {
+            long[] friendsVersion = new long[1];
+            forEachFriend(userId, friendId -> friendsVersion[0] += versionOf(friendId));
+            return new FriendsStamp(generation.get(), versionOf(userId), friendsVersion[0]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long edgeCount() {
+        lock.readLock().lock();
+        try {
+            return edgeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Id друзей пользователя по возрастанию.
+     */
+    public int[] friendsOf(int userId) {
+        lock.readLock().lock();
+        try {
+            return friendsOfLocked(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Обход друзей пользователя по возрастанию id без выделения памяти под результат.
+     */
+    public void forEachFriend(int userId, IntConsumer action) {
+        lock.readLock().lock();
+        try {
+            int[] out = row(outgoing, userId);
+            int[] in = row(incomingConfirmed, userId);
+            int i = 0;
+            int j = 0;
+            while (i < out.length || j < in.length) {
+                if (j == in.length || (i < out.length && decode(out[i]) <= in[j])) {
+                    int next = decode(out[i++]);
+                    if (j < in.length && in[j] == next) {
+                        j++;
+                    }
+                    action.accept(next);
+                } else {
+                    action.accept(in[j++]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Id общих друзей по возрастанию: пересечение двух отсортированных массивов за O(n + m).
+     */
+    public int[] commonFriends(int userId1, int userId2) {
+        lock.readLock().lock();
+        try {
+            int[] a = friendsOfLocked(userId1);
+            int[] b = friendsOfLocked(userId2);
+            int[] result = new int[Math.min(a.length, b.length)];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    result[size++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Есть ли между пользователями подтверждённая строка в любом направлении.
+     */
+    public boolean isConfirmed(int userId1, int userId2) {
+        lock.readLock().lock();
+        try {
+            int index = indexOfTarget(row(outgoing, userId1), userId2);
+            if (index >= 0 && isConfirmedEntry(outgoing[userId1][index])) {
+                return true;
+            }
+            return Arrays.binarySearch(row(incomingConfirmed, userId1), userId2) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Есть ли неподтверждённая заявка от fromUserId к toUserId.
+     */
+    public boolean hasPendingRequest(int fromUserId, int toUserId) {
+        lock.readLock().lock();
+        try {
+            int[] row = row(outgoing, fromUserId);
+            int index = indexOfTarget(row, toUserId);
+            return index >= 0 && !isConfirmedEntry(row[index]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Новая строка friends (user1_id → user2_id).
+     */
+    public void addEdge(int fromUserId, int toUserId, boolean confirmed) {
+        checkId(fromUserId);
+        checkId(toUserId);
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(Math.max(fromUserId, toUserId));
+            int[] row = outgoing[fromUserId];
+            int index = indexOfTarget(row, toUserId);
+            if (index >= 0) {
+                return;
+            }
+            outgoing[fromUserId] = insertAt(row, -index - 1, encode(toUserId, confirmed));
+            versions[fromUserId]++;
+            if (confirmed) {
+                incomingConfirmed[toUserId] = insertSorted(incomingConfirmed[toUserId], fromUserId);
+                versions[toUserId]++;
+            }
+            edgeCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Подтверждение строки friends (user1_id → user2_id).
+     */
+    public void confirmEdge(int fromUserId, int toUserId) {
+        lock.writeLock().lock();
+        try {
+            int[] row = row(outgoing, fromUserId);
+            int index = indexOfTarget(row, toUserId);
+            if (index < 0 || isConfirmedEntry(row[index])) {
+                return;
+            }
+            row[index] = encode(toUserId, true);
+            incomingConfirmed[toUserId] = insertSorted(incomingConfirmed[toUserId], fromUserId);
+            versions[toUserId]++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет строки между пользователями в обоих направлениях.
+     */
+    public void removeEdges(int userId1, int userId2) {
+        lock.writeLock().lock();
+        try {
+            removeEdge(userId1, userId2);
+            removeEdge(userId2, userId1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        install(new int[0][], new int[0][], 0);
+    }
+
+    /**
+     * Оценка памяти под массивы графа в байтах (сжатые ссылки, выравнивание по 8 байт).
+     */
+    public long estimatedHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return IntArrays.heapBytes(outgoing) + IntArrays.heapBytes(incomingConfirmed)
+                    + 16 + 8L * versions.length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] friendsOfLocked(int userId) {
+        int[] result = new int[row(outgoing, userId).length + row(incomingConfirmed, userId).length];
+        int[] size = new int[1];
+        forEachFriend(userId, friendId -> result[size[0]++] = friendId);
+        return size[0] == result.length ? result : Arrays.copyOf(result, size[0]);
+    }
+
+    private void removeEdge(int fromUserId, int toUserId) {
+        int[] row = row(outgoing, fromUserId);
+        int index = indexOfTarget(row, toUserId);
+        if (index < 0) {
+            return;
+        }
+        boolean confirmed = isConfirmedEntry(row[index]);
+        outgoing[fromUserId] = removeAt(row, index);
+        versions[fromUserId]++;
+        if (confirmed) {
+            incomingConfirmed[toUserId] = removeSorted(incomingConfirmed[toUserId], fromUserId);
+            versions[toUserId]++;
+        }
+        edgeCount--;
+    }
+
+    private long versionOf(int userId) {
+        return userId >= 0 && userId < versions.length ? versions[userId] : 0;
+    }
+
+    private void install(int[][] outgoing, int[][] incomingConfirmed, long edgeCount) {
+        lock.writeLock().lock();
+        try {
+            this.outgoing = outgoing;
+            this.incomingConfirmed = incomingConfirmed;
+            this.versions = new long[outgoing.length];
+            this.edgeCount = edgeCount;
+            generation.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureCapacity(int maxId) {
+        if (maxId < outgoing.length) {
+            return;
+        }
+        int length = Math.max(maxId + 1, outgoing.length + (outgoing.length >> 1));
+        outgoing = grow(outgoing, length);
+        incomingConfirmed = grow(incomingConfirmed, length);
+        versions = Arrays.copyOf(versions, length);
+    }
+
+    private static int encode(int userId, boolean confirmed) {
+        return (userId << 1) | (confirmed ? 1 : 0);
+    }
+
+    private static int decode(int entry) {
+        return entry >>> 1;
+    }
+
+    private static boolean isConfirmedEntry(int entry) {
+        return (entry & 1) != 0;
+    }
+
+    // Позиция строки к targetId в массиве исходящих связей, иначе -(точка вставки) - 1
+    private static int indexOfTarget(int[] row, int targetId) {
+        int index = Arrays.binarySearch(row, encode(targetId, false));
+        if (index >= 0) {
+            return index;
+        }
+        int insertion = -index - 1;
+        if (insertion < row.length && row[insertion] == encode(targetId, true)) {
+            return insertion;
+        }
+        return index;
+    }
+
+    private static void checkId(int userId) {
+        if (userId < 0 || userId > MAX_ID) {
+            throw new IllegalArgumentException("Id пользователя вне допустимого диапазона графа: " + userId);
+        }
+    }
+
+    /**
+     * Отметка версий для {@link #friendsStamp(int)}.
+     */
+    public record FriendsStamp(long generation, long version, long friendsVersion) {
+    }
+
+    /**
+     * Начальная загрузка графа: строки friends копятся в {@link IntTableBuilder},
+     * каждый массив сортируется один раз в {@link #install()}. Граф подменяется целиком.
+     */
+    public final class Loader {
+        private final IntTableBuilder out = new IntTableBuilder();
+        private final IntTableBuilder in = new IntTableBuilder();
+        private long edges;
+        private int maxUserId = -1;
+
+        private Loader() {
+        }
+
+        public void add(int fromUserId, int toUserId, boolean confirmed) {
+            checkId(fromUserId);
+            checkId(toUserId);
+            out.add(fromUserId, encode(toUserId, confirmed));
+            if (confirmed) {
+                in.add(toUserId, fromUserId);
+            }
+            maxUserId = Math.max(maxUserId, Math.max(fromUserId, toUserId));
+            edges++;
+        }
+
+        // Обе таблицы одной длины: ensureCapacity расширяет их вместе. Длина учитывает оба конца
+        // каждой строки: получатель неподтверждённой заявки не попадает ни в одну из таблиц,
+        // а при подтверждении его строка incomingConfirmed должна существовать
+        public void install() {
+            int length = Math.max(maxUserId + 1, Math.max(out.length(), in.length()));
+            SocialGraph.this.install(out.build(length), in.build(length), edges);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.job;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.index.LikeBuffer;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Сброс буфера лайков в базу: по расписанию, досрочно при заполнении буфера и при остановке приложения.
+ * Всё содержимое буфера пишется batch-запросами в одной транзакции. Если запись не удалась,
+ * события остаются в буфере до следующего сброса, а новые пары сверх
+ * {@link ru.yandex.practicum.filmorate.config.LikeBufferProperties#maxBuffered()} отклоняются.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikeBufferFlushJob {
+    private final LikeBuffer likeBuffer;
+    private final FilmRepository filmRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler taskScheduler;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // не synchronized: виртуальный поток, ждущий базу внутри монитора, занял бы поток-носитель
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Досрочный сброс выполняется в потоке планировщика, а не в потоке запроса, принявшего лайк
+    @PostConstruct
+    public void registerFlushRequest() {
+        likeBuffer.onFull(() -> {
+            if (flushRequested.compareAndSet(false, true)) {
+                taskScheduler.schedule(this::flush, Instant.now());
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.buffer.flush-interval-ms:1000}")
+    public void flush() {
+        flushRequested.set(false);
+        if (!likeBuffer.isEnabled()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает буфер и выполняет action, не выпуская блокировку сброса: пока action работает,
+     * следующий сброс не начнётся и не перенесёт события из буфера в базу.
+     */
+    public <T> T flushAndRun(Supplier<T> action) {
+        flushRequested.set(false);
+        flushLock.lock();
+        try {
+            if (likeBuffer.isEnabled()) {
+                flushLocked();
+            }
+            return action.get();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLocked() {
+        List<LikeChange> changes = likeBuffer.beginFlush();
+        if (changes.isEmpty()) {
+            likeBuffer.endFlush(true);
+            return;
+        }
+        boolean committed = false;
+        try {
+            int written = transactionTemplate.execute(status -> filmRepository.writeBufferedLikes(changes));
+            committed = true;
+            log.debug("Буфер лайков сброшен: {} событий, изменено в базе {}", changes.size(), written);
+        } catch (RuntimeException e) {
+            log.error("Не удалось сбросить буфер лайков, {} событий останутся до следующего сброса", changes.size(), e);
+        } finally {
+            likeBuffer.endFlush(committed);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        int left = likeBuffer.size();
+        if (left > 0) {
+            log.error("При остановке в буфере лайков остались незаписанные события: {}", left);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.job;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.index.EntityVersions;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+/**
+ * Периодическая сверка денормализованного счётчика films.like_count с таблицей likes.
+ * В нормальной работе расхождений нет: счётчик меняется в одной транзакции с лайком.
+ * Джоба страхует от ручных правок базы и записей в обход сервиса.
+ * Перед сверкой сбрасывается буфер лайков, иначе отложенные лайки выглядели бы расхождением.
+ * Сброс и сверка идут под одной блокировкой сброса, а лайки, принятые за это время, остаются в буфере
+ * и учитываются перестроенным рейтингом.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikeCountReconciliationJob {
+    private final FilmRepository filmRepository;
+    private final LikeBufferFlushJob likeBufferFlushJob;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityVersions entityVersions;
+
+    @Scheduled(cron = "${filmorate.likes.reconcile-cron:0 0 4 * * *}")
+    public void reconcile() {
+        int fixed = likeBufferFlushJob.flushAndRun(
+                () -> transactionTemplate.execute(status -> filmRepository.reconcileLikeCounts()));
+        if (fixed > 0) {
+            log.warn("Счётчик лайков исправлен у {} фильмов", fixed);
+            // Исправленные счётчики видны в ответах о фильмах, выданные ETag больше не годятся
+            entityVersions.invalidateAll();
+        } else {
+            log.info("Счётчики лайков совпадают с таблицей likes");
+        }
+    }
+}
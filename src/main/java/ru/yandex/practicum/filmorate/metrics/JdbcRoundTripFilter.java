@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Число обращений к базе на HTTP-запрос: распределение filmorate.jdbc.round.trips с тегами method и uri
+ * (шаблон пути, как в http.server.requests). Рост среднего по эндпоинту — признак N+1.
+ * <p>
+ * Считаются обращения из потока запроса. Потоковая выгрузка (/films/export, /users/export) пишет ответ
+ * в другом потоке, её запросы сюда не попадают.
+ */
+@Component
+@RequiredArgsConstructor
+public class JdbcRoundTripFilter extends OncePerRequestFilter {
+    private final JdbcRoundTrips roundTrips;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        roundTrips.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long count = roundTrips.end();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("filmorate.jdbc.round.trips")
+                    .description("Обращения к базе за один HTTP-запрос")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                    .register(meterRegistry)
+                    .record(count);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Счётчик обращений к базе: каждый вызов execute* у Statement — одно обращение (для batch — одно на пакет).
+ * <p>
+ * DataSource оборачивается в {@link DelegatingDataSource}, соединения и операторы — в динамические прокси.
+ * Обёртку видят и JdbcTemplate, и менеджер транзакций, поэтому соединение транзакции у них общее.
+ * Метрики пула HikariCP и VirtualThreadPoolSizing находят пул через unwrap.
+ * <p>
+ * Все обращения складываются в счётчик filmorate.jdbc.statements. Между {@link #begin()} и {@link #end()}
+ * они дополнительно считаются для текущего потока — так {@link JdbcRoundTripFilter} получает число
+ * обращений на HTTP-запрос.
+ */
+@Component
+public class JdbcRoundTrips implements BeanPostProcessor {
+    private static final ThreadLocal<long[]> CURRENT = new ThreadLocal<>();
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private volatile Counter statements;
+
+    public JdbcRoundTrips(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof CountingDataSource)) {
+            return new CountingDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    /**
+     * Начинает подсчёт обращений текущего потока.
+     */
+    public void begin() {
+        CURRENT.set(new long[1]);
+    }
+
+    /**
+     * Заканчивает подсчёт и возвращает число обращений с {@link #begin()}.
+     */
+    public long end() {
+        long[] count = CURRENT.get();
+        CURRENT.remove();
+        return count == null ? 0 : count[0];
+    }
+
+    private void record() {
+        long[] count = CURRENT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        statementsCounter().increment();
+    }
+
+    // Реестр метрик берётся при первом обращении: BeanPostProcessor создаётся раньше, чем реестр настроен
+    private Counter statementsCounter() {
+        Counter counter = statements;
+        if (counter == null) {
+            counter = Counter.builder("filmorate.jdbc.statements")
+                    .description("Обращения к базе: вызовы execute* у JDBC Statement")
+                    .register(meterRegistry.getObject());
+            statements = counter;
+        }
+        return counter;
+    }
+
+    // equals и hashCode — по самому прокси, остальное — вызов обёрнутого объекта
+    private static Object invoke(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                break;
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(JdbcRoundTrips.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private final class CountingDataSource extends DelegatingDataSource {
+        private CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+
+        // Операторы, созданные соединением, возвращаются обёрнутыми
+        private Connection counting(Connection connection) {
+            return proxy(Connection.class, (proxy, method, args) -> {
+                Object result = invoke(proxy, connection, method, args);
+                if (result instanceof CallableStatement statement) {
+                    return counting(CallableStatement.class, statement);
+                }
+                if (result instanceof PreparedStatement statement) {
+                    return counting(PreparedStatement.class, statement);
+                }
+                if (result instanceof Statement statement) {
+                    return counting(Statement.class, statement);
+                }
+                return result;
+            });
+        }
+
+        private <T extends Statement> T counting(Class<T> type, T statement) {
+            return proxy(type, (proxy, method, args) -> {
+                if (method.getName().startsWith("execute")) {
+                    record();
+                }
+                return invoke(proxy, statement, method, args);
+            });
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики публичных методов репозиториев из repository.impl.
+ * <p>
+ * filmorate.repository — таймер вызовов с тегами repository, method и exception (none при успехе).
+ * filmorate.repository.rows — число возвращённых записей для методов, возвращающих коллекцию,
+ * Map или Optional. Перегруженные методы делят одну метрику.
+ * <p>
+ * Бины оборачиваются CGLIB-прокси, поэтому их по-прежнему можно внедрять по классу реализации.
+ * Вызовы внутри репозитория (this.method()) не учитываются. Метрики каждого метода создаются
+ * при первом вызове и дальше берутся из кэша, без поиска в реестре.
+ */
+@Component
+public class RepositoryMetrics implements BeanPostProcessor {
+    private static final String PACKAGE = "ru.yandex.practicum.filmorate.repository.impl";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Map<Method, Meters> meters = new ConcurrentHashMap<>();
+
+    public RepositoryMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> type = AopUtils.getTargetClass(bean);
+        if (!PACKAGE.equals(type.getPackageName())) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new Interceptor(repositoryName(type)));
+        return proxyFactory.getProxy(type.getClassLoader());
+    }
+
+    // FilmRepositoryImpl -> FilmRepository: так репозиторий называется в сервисах
+    private static String repositoryName(Class<?> type) {
+        String name = type.getSimpleName();
+        return name.endsWith("Impl") ? name.substring(0, name.length() - "Impl".length()) : name;
+    }
+
+    private static int rows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+
+    private record Meters(Timer success, DistributionSummary rows) {
+    }
+
+    private final class Interceptor implements MethodInterceptor {
+        private final String repository;
+
+        private Interceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            if (method.getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            long started = System.nanoTime();
+            Object result;
+            try {
+                result = invocation.proceed();
+            } catch (Throwable e) {
+                timer(method, e.getClass().getSimpleName())
+                        .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+            Meters methodMeters = meters.computeIfAbsent(method, this::register);
+            methodMeters.success().record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            int rows = rows(result);
+            if (rows >= 0) {
+                methodMeters.rows().record(rows);
+            }
+            return result;
+        }
+
+        private Meters register(Method method) {
+            return new Meters(timer(method, "none"), DistributionSummary.builder("filmorate.repository.rows")
+                    .description("Записи, возвращённые методом репозитория")
+                    .tag("repository", repository)
+                    .tag("method", method.getName())
+                    .register(meterRegistry.getObject()));
+        }
+
+        private Timer timer(Method method, String exception) {
+            return Timer.builder("filmorate.repository")
+                    .description("Вызовы методов репозиториев")
+                    .tag("repository", repository)
+                    .tag("method", method.getName())
+                    .tag("exception", exception)
+                    .register(meterRegistry.getObject());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Результат обработки одного элемента пакетного запроса.
+ * index — позиция элемента во входном массиве, id — присвоенный идентификатор (для CREATED).
+ */
+@Value
+@Builder(toBuilder = true)
+public class BatchItemResult {
+    int index;
+    Integer id;
+    BatchItemStatus status;
+    List<String> errors;
+}
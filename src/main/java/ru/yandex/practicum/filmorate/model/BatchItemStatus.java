@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.model;
+
+public enum BatchItemStatus {
+    CREATED,  // запись сохранена
+    REJECTED, // запись не прошла валидацию и не сохранялась
+    FAILED    // валидация пройдена, но пакет не удалось записать в базу
+}
@@ -24,4 +24,5 @@ public class Film {
     LocalDate releaseDate;
     @Positive(message = "Продолжительность фильма должна быть положительным числом.")
     int duration; // указываем в минутах.
+    int likeCount; // заполняется только сервером, из запроса игнорируется.
 }
@@ -0,0 +1,6 @@
+package ru.yandex.practicum.filmorate.model;
+
+public enum FilmSearchField {
+    TITLE,       // название фильма
+    DESCRIPTION  // описание фильма
+}
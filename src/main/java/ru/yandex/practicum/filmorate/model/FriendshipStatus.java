@@ -0,0 +1,6 @@
+package ru.yandex.practicum.filmorate.model;
+
+public enum FriendshipStatus {
+    PENDING,   // заявка отправлена и ждёт подтверждения
+    CONFIRMED  // заявка подтверждена, пользователи — друзья
+}
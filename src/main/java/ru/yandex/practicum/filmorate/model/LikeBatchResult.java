@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Итог пакетной обработки лайков.
+ * applied — изменили состояние в базе;
+ * duplicates — повторы пары в пакете (учитывается последнее событие) и события,
+ * не меняющие состояние (лайк уже стоит или его и не было);
+ * invalid — ссылаются на несуществующий фильм или пользователя.
+ */
+@Value
+@Builder(toBuilder = true)
+public class LikeBatchResult {
+    List<LikeChange> applied;
+    List<LikeChange> duplicates;
+    List<LikeChange> invalid;
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Событие лайка или снятия лайка для пакетной обработки.
+ * Если action не указан, событие считается лайком.
+ */
+@Value
+@Builder(toBuilder = true)
+public class LikeChange {
+    int filmId;
+    int userId;
+    LikeAction action;
+
+    @JsonIgnore
+    public boolean isUnlike() {
+        return action == LikeAction.UNLIKE;
+    }
+}
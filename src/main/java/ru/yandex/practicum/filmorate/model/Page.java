@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Страница выборки при keyset-пагинации.
+ * nextCursor равен null, если дальше записей нет.
+ */
+@Value
+@Builder(toBuilder = true)
+public class Page<T> {
+    List<T> items;
+    String nextCursor;
+}
@@ -1,39 +1,40 @@
 package ru.yandex.practicum.filmorate.repository;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Set;
 
+/**
+ * Маппер строки таблицы films. Обращений к базе не делает:
+ * в рейтинге заполняется только id, жанры остаются пустыми.
+ * Жанры и название рейтинга подставляются пакетно в FilmRepositoryImpl.
+ */
 @Component
-@RequiredArgsConstructor
 public class FilmMapper implements RowMapper<Film> {
-    private final GenreRepository genreRepository;
-    private final MpaRepository mpaRepository;
 
     @Override
     public Film mapRow(final ResultSet rs, final int rowNum) throws SQLException {
-        int filmId = rs.getInt("id");
         int contentRatingId = rs.getInt("content_rating_id");
-        Set<Genre> genres = genreRepository.findGenresByFilmId(filmId);
-        Mpa contentRating = mpaRepository.findRatingById(contentRatingId);
+        Mpa contentRating = rs.wasNull()
+                ? null
+                : Mpa.builder().id(contentRatingId).build();
 
         return Film.builder()
-                .id(filmId)
+                .id(rs.getInt("id"))
                 .name(rs.getString("name"))
                 .description(rs.getString("description"))
                 .releaseDate(rs.getDate("release_date") != null
                         ? rs.getDate("release_date").toLocalDate()
                         : null)
                 .duration(rs.getInt("duration"))
-                .genres(genres)
+                .likeCount(rs.getInt("like_count"))
+                .genres(Set.of())
                 .mpa(contentRating)
                 .build();
     }
-}
\ No newline at end of file
+}
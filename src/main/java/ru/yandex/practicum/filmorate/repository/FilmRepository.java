@@ -1,25 +1,86 @@
 package ru.yandex.practicum.filmorate.repository;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchField;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmRepository {
 
     void addLike(int filmId, int userId);
 
+    /**
+     * Пакетно применяет лайки и их снятие. Возвращает события, которые изменили состояние в базе.
+     */
+    List<LikeChange> applyLikeChanges(List<LikeChange> changes);
+
+    /**
+     * Записывает в базу события из буфера лайков, уже учтённые в памяти. События, не изменившие базу,
+     * откатываются в памяти. Возвращает число изменённых пар.
+     */
+    int writeBufferedLikes(List<LikeChange> changes);
+
     void deleteAll();
 
     void deleteLike(int filmId, int userId);
 
+    boolean existsById(int filmId);
+
     List<Film> findAll();
 
     Optional<Film> findById(int id);
 
+    /**
+     * Какие из переданных id есть в таблице films. Один запрос на весь набор.
+     */
+    Set<Integer> findExistingIds(Collection<Integer> ids);
+
+    /**
+     * Keyset-пагинация: до limit фильмов с id больше afterId в порядке возрастания id.
+     */
+    List<Film> findPage(int afterId, int limit);
+
     List<Film> findMostLikedFilms(int count);
 
+    /**
+     * Самые популярные фильмы жанра и/или года выхода. Null — фильтр не задан.
+     */
+    List<Film> findMostLikedFilms(int count, Integer genreId, Integer year);
+
+    /**
+     * Полнотекстовый поиск по выбранным полям: до limit фильмов по убыванию релевантности и лайков.
+     */
+    List<Film> searchFilms(String query, Set<FilmSearchField> fields, int limit);
+
+    /**
+     * Рекомендации по лайкам пользователей с похожими вкусами: до limit фильмов,
+     * которые пользователь ещё не лайкал, в порядке убывания веса.
+     */
+    List<Film> findRecommendations(int userId, int limit);
+
     boolean isLikeExists(int filmId, int userId);
 
+    /**
+     * Пересчитывает films.like_count по таблице likes.
+     * Возвращает количество фильмов, у которых счётчик разошёлся с фактом. Вызывается между сбросами
+     * буфера лайков: рейтинг перестраивается из базы с учётом ещё не записанных событий буфера.
+     */
+    int reconcileLikeCounts();
+
     Film save(Film film);
-}
\ No newline at end of file
+
+    /**
+     * Пакетная вставка новых фильмов. Возвращает фильмы с присвоенными id в исходном порядке.
+     */
+    List<Film> saveAll(List<Film> films);
+
+    /**
+     * Передаёт все записи по одной в consumer, не собирая их в список.
+     */
+    void streamAll(int fetchSize, Consumer<Film> consumer);
+}
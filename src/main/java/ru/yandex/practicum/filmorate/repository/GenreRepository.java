@@ -2,7 +2,9 @@ package ru.yandex.practicum.filmorate.repository;
 
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -12,5 +14,5 @@ public interface GenreRepository {
 
     Optional<Genre> findById(int id);
 
-    Set<Genre> findGenresByFilmId(int filmId);
-}
\ No newline at end of file
+    Map<Integer, Set<Genre>> findGenresByFilmIds(Collection<Integer> filmIds);
+}
@@ -10,6 +10,4 @@ public interface MpaRepository {
     List<Mpa> findAll();
 
     Optional<Mpa> findById(int id);
-
-    Mpa findRatingById(int filmId);
 }
@@ -1,13 +1,21 @@
 package ru.yandex.practicum.filmorate.repository;
 
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserRepository {
 
-    void confirmFriendship(int userId, int friendId);
+    /**
+     * Подтверждает заявку от friendId к userId одним условным UPDATE.
+     * Возвращает false, если такой неподтверждённой заявки нет.
+     */
+    boolean confirmFriendship(int userId, int friendId);
 
     void deleteAll();
 
@@ -21,15 +29,44 @@ public interface UserRepository {
 
     Optional<User> findById(int id);
 
+    /**
+     * Какие из переданных id есть в таблице users. Один запрос на весь набор.
+     */
+    Set<Integer> findExistingIds(Collection<Integer> ids);
+
+    /**
+     * Keyset-пагинация: до limit пользователей с id больше afterId в порядке возрастания id.
+     */
+    List<User> findPage(int afterId, int limit);
+
     List<User> getFriends(int userId);
 
     List<User> getCommonFriends(int userId1, int userId2);
 
+    /**
+     * Рекомендации друзей: до limit пользователей по убыванию числа общих друзей.
+     */
+    List<User> getFriendSuggestions(int userId, int limit);
+
     boolean isValidFriendRequest(int userId, int friendId);
 
-    void makeFriends(int userId, int friendId, boolean isConfirmed);
+    /**
+     * Заявка в друзья одним MERGE: встречная неподтверждённая заявка подтверждается,
+     * при отсутствии строк между пользователями создаётся новая заявка.
+     * Возвращает получившееся состояние или пустой Optional, если ничего не изменилось
+     * (заявка уже отправлена или пользователи уже друзья).
+     */
+    Optional<FriendshipStatus> requestFriendship(int userId, int friendId);
 
-    void removeFriends(int userId, int friendId);
+    /**
+     * Удаляет строки между пользователями в обоих направлениях. Возвращает false, если их не было.
+     */
+    boolean removeFriends(int userId, int friendId);
 
     User save(User user);
+
+    /**
+     * Передаёт все записи по одной в consumer, не собирая их в список.
+     */
+    void streamAll(int fetchSize, Consumer<User> consumer);
 }
@@ -1,70 +1,430 @@
 package ru.yandex.practicum.filmorate.repository.impl;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.index.AfterCommit;
+import ru.yandex.practicum.filmorate.index.EntityVersions;
+import ru.yandex.practicum.filmorate.index.ExistenceCache;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikeBuffer;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchField;
 
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeAction;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.MpaRepository;
 
+import java.sql.BatchUpdateException;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import static ru.yandex.practicum.filmorate.index.ExistenceCache.EntityType.FILM;
+
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public class FilmRepositoryImpl implements FilmRepository {
+    private static final String INSERT_SQL =
+            "INSERT INTO films (name, description, release_date, duration, content_rating_id) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    // SQLSTATE нарушения уникальности
+    private static final String DUPLICATE_KEY_STATE = "23505";
+    // Планы запросов ниже проверяются в QueryPlanTest: обход по films_like_count_idx и первичным ключам
+    static final String POPULARITY_SQL = "SELECT id, like_count, release_date FROM films ORDER BY like_count DESC, id";
+    static final String FILMS_PAGE_SQL = "SELECT * FROM films WHERE id > ? ORDER BY id LIMIT ?";
+    static final String LIKE_EXISTS_SQL = "SELECT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+    static final String INSERT_LIKE_SQL = "INSERT INTO likes (film_id, user_id) SELECT ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?) " +
+            "AND EXISTS (SELECT 1 FROM films WHERE id = ?) AND EXISTS (SELECT 1 FROM users WHERE id = ?)";
+    static final String DELETE_LIKE_SQL = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+    static final String RECONCILE_LIKE_COUNTS_SQL = """
+            UPDATE films f
+            SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id)
+            WHERE like_count <> (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id)
+            """;
 
     private final JdbcTemplate jdbcTemplate;
     private final RowMapper<Film> filmRowMapper;
+    private final GenreRepository genreRepository;
+    private final MpaRepository mpaRepository;
+    private final FilmPopularityIndex popularityIndex;
+    private final ExistenceCache existenceCache;
+    private final LikeMatrix likeMatrix;
+    private final FilmSearchIndex searchIndex;
+    private final LikeBuffer likeBuffer;
+    private final EntityVersions entityVersions;
+
+    /**
+     * Рейтинг популярности строится один раз при старте, дальше поддерживается инкрементально.
+     * Читается денормализованный счётчик like_count обходом индекса films_like_count_idx,
+     * без группировки таблицы likes. Тем же проходом заполняется кэш существования фильмов.
+     * Жанры для корзин по жанрам читаются вторым запросом целиком из film_genres.
+     */
+    @PostConstruct
+    public void loadPopularityIndex() {
+        Map<Integer, List<Integer>> genresByFilm = new HashMap<>();
+        jdbcTemplate.query("SELECT film_id, genre_id FROM film_genres", rs -> {
+            genresByFilm.computeIfAbsent(rs.getInt("film_id"), id -> new ArrayList<>()).add(rs.getInt("genre_id"));
+        });
+        List<FilmPopularityIndex.FilmStats> films = new ArrayList<>();
+        jdbcTemplate.query(POPULARITY_SQL, rs -> {
+            int id = rs.getInt("id");
+            java.sql.Date releaseDate = rs.getDate("release_date");
+            films.add(new FilmPopularityIndex.FilmStats(id, rs.getInt("like_count"),
+                    genresByFilm.getOrDefault(id, List.of()),
+                    releaseDate != null ? releaseDate.toLocalDate() : null));
+            existenceCache.register(FILM, id);
+        });
+        popularityIndex.rebuild(films);
+        log.info("Рейтинг популярности построен: {} фильмов", films.size());
+    }
+
+    // Матрица лайков для рекомендаций строится при старте и дальше обновляется вместе с like_count
+    @PostConstruct
+    public void loadLikeMatrix() {
+        LikeMatrix.Loader loader = likeMatrix.loader();
+        jdbcTemplate.query("SELECT film_id, user_id FROM likes", rs -> {
+            loader.add(rs.getInt("film_id"), rs.getInt("user_id"));
+        });
+        loader.install();
+        log.info("Матрица лайков загружена: {} лайков, ~{} КБ", likeMatrix.likeCount(),
+                likeMatrix.estimatedHeapBytes() / 1024);
+    }
+
+    // Поисковый индекс строится при старте одним проходом по films и дальше обновляется при сохранении фильмов
+    @PostConstruct
+    public void loadSearchIndex() {
+        FilmSearchIndex.Loader loader = searchIndex.loader();
+        jdbcTemplate.query("SELECT id, name, description FROM films", rs -> {
+            loader.add(rs.getInt("id"), rs.getString("name"), rs.getString("description"));
+        });
+        loader.install();
+        log.info("Поисковый индекс построен: {} слов, ~{} КБ", searchIndex.termCount(),
+                searchIndex.estimatedHeapBytes() / 1024);
+    }
 
+    // Вызывается внутри транзакции сервиса: строка в likes и счётчик меняются атомарно
     public void addLike(int filmId, int userId) {
+        if (likeBuffer.isEnabled()) {
+            bufferLike(filmId, userId, true);
+            return;
+        }
         String sql = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
         jdbcTemplate.update(sql, filmId, userId);
+        jdbcTemplate.update("UPDATE films SET like_count = like_count + 1 WHERE id = ?", filmId);
+        AfterCommit.run(() -> {
+            popularityIndex.changeLikes(filmId, 1);
+            likeMatrix.addLike(filmId, userId);
+        });
+    }
+
+    /**
+     * Пакетное применение лайков: условная вставка и удаление выполняются batch-запросами,
+     * like_count обновляется одним batch-запросом по суммарной дельте на фильм.
+     * Вызывается внутри транзакции сервиса.
+     */
+    public List<LikeChange> applyLikeChanges(List<LikeChange> changes) {
+        if (likeBuffer.isEnabled()) {
+            return changes.stream()
+                    .filter(change -> bufferLike(change.getFilmId(), change.getUserId(), !change.isUnlike()))
+                    .toList();
+        }
+        List<LikeChange> applied = writeLikeChanges(changes).applied();
+        if (!applied.isEmpty()) {
+            AfterCommit.run(() -> applied.forEach(this::applyToIndexes));
+        }
+        return applied;
+    }
+
+    /**
+     * Запись содержимого буфера лайков. В рейтинге и матрице лайков события уже учтены при приёме,
+     * поэтому меняются только строки likes и like_count. Лайки фильмов и пользователей, удалённых
+     * после приёма в буфер, пропускаются условием вставки, как и пары, уже записанные в обход буфера.
+     * Пропущенные события после фиксации откатываются в рейтинге и матрице лайков, а версии их фильмов
+     * увеличиваются: счётчик лайков в ответе меняется, и выданные ETag не должны давать 304.
+     */
+    public int writeBufferedLikes(List<LikeChange> changes) {
+        LikeWrite write = writeLikeChanges(changes);
+        if (!write.rejected().isEmpty()) {
+            AfterCommit.run(() -> write.rejected().forEach(this::revertInIndexes));
+            // filmChanged сам откладывает увеличение до фиксации: синхронизация, зарегистрированная
+            // внутри afterCommit, уже не вызывается, поэтому он вызывается здесь, а не в действии выше
+            write.rejected().stream()
+                    .mapToInt(LikeChange::getFilmId)
+                    .distinct()
+                    .forEach(entityVersions::filmChanged);
+        }
+        return write.applied().size();
+    }
+
+    // Принимает событие в буфер и сразу отражает его в рейтинге и матрице лайков
+    private boolean bufferLike(int filmId, int userId, boolean liked) {
+        LikeChange change = LikeChange.builder()
+                .filmId(filmId)
+                .userId(userId)
+                .action(liked ? LikeAction.LIKE : LikeAction.UNLIKE)
+                .build();
+        return likeBuffer.apply(filmId, userId, liked, () -> isLikeStored(filmId, userId),
+                () -> applyToIndexes(change));
+    }
+
+    private void revertInIndexes(LikeChange change) {
+        applyToIndexes(change.toBuilder()
+                .action(change.isUnlike() ? LikeAction.LIKE : LikeAction.UNLIKE)
+                .build());
+    }
+
+    private void applyToIndexes(LikeChange change) {
+        if (change.isUnlike()) {
+            popularityIndex.changeLikes(change.getFilmId(), -1);
+            likeMatrix.removeLike(change.getFilmId(), change.getUserId());
+        } else {
+            popularityIndex.changeLikes(change.getFilmId(), 1);
+            likeMatrix.addLike(change.getFilmId(), change.getUserId());
+        }
+    }
+
+    // Изменившие состояние в базе события и пропущенные: пары, уже бывшие в нужном состоянии или без фильма
+    private record LikeWrite(List<LikeChange> applied, List<LikeChange> rejected) {
+    }
+
+    private LikeWrite writeLikeChanges(List<LikeChange> changes) {
+        List<LikeChange> likes = changes.stream().filter(change -> !change.isUnlike()).toList();
+        List<LikeChange> unlikes = changes.stream().filter(LikeChange::isUnlike).toList();
 
+        // вставка только если лайка ещё нет: счётчик строк показывает, изменилось ли состояние
+        int[] inserted = likes.isEmpty() ? new int[0] : insertLikes(likes);
+        int[] deleted = unlikes.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(DELETE_LIKE_SQL,
+                unlikes.stream()
+                        .map(unlike -> new Object[]{unlike.getFilmId(), unlike.getUserId()})
+                        .toList());
+
+        List<LikeChange> applied = new ArrayList<>();
+        List<LikeChange> rejected = new ArrayList<>();
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (int i = 0; i < likes.size(); i++) {
+            if (inserted[i] > 0) {
+                applied.add(likes.get(i));
+                deltas.merge(likes.get(i).getFilmId(), 1, Integer::sum);
+            } else {
+                rejected.add(likes.get(i));
+            }
+        }
+        for (int i = 0; i < unlikes.size(); i++) {
+            if (deleted[i] > 0) {
+                applied.add(unlikes.get(i));
+                deltas.merge(unlikes.get(i).getFilmId(), -1, Integer::sum);
+            } else {
+                rejected.add(unlikes.get(i));
+            }
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (!deltas.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE films SET like_count = like_count + ? WHERE id = ?",
+                    deltas.entrySet().stream()
+                            .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                            .toList());
+        }
+        return new LikeWrite(applied, rejected);
+    }
+
+    /**
+     * Условная вставка лайков пакетом. Параллельная транзакция с той же парой может пройти проверку
+     * NOT EXISTS одновременно с этой: тогда вставка упирается в первичный ключ likes. H2 выполняет
+     * остальные запросы пакета и сообщает счётчики в BatchUpdateException, поэтому такие пары
+     * считаются уже записанными (0 строк), а не обрывают весь пакет.
+     */
+    private int[] insertLikes(List<LikeChange> likes) {
+        List<Object[]> arguments = likes.stream()
+                .map(like -> new Object[]{like.getFilmId(), like.getUserId(),
+                        like.getFilmId(), like.getUserId(), like.getFilmId(), like.getUserId()})
+                .toList();
+        try {
+            return jdbcTemplate.batchUpdate(INSERT_LIKE_SQL, arguments);
+        } catch (DuplicateKeyException e) {
+            if (!(e.getCause() instanceof BatchUpdateException batch)
+                    || batch.getUpdateCounts().length != likes.size() || !onlyDuplicateKeys(batch)) {
+                throw e;
+            }
+            log.debug("Лайки, записанные параллельной транзакцией, пропущены: {}", batch.getMessage());
+            return Arrays.stream(batch.getUpdateCounts())
+                    .map(count -> count == Statement.EXECUTE_FAILED ? 0 : count)
+                    .toArray();
+        }
+    }
+
+    // Ошибки запросов пакета идут цепочкой getNextException, первая — сам BatchUpdateException
+    private static boolean onlyDuplicateKeys(BatchUpdateException batch) {
+        for (SQLException error = batch; error != null; error = error.getNextException()) {
+            if (!DUPLICATE_KEY_STATE.equals(error.getSQLState())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public void deleteAll() {
         String sql = "DELETE FROM films";
         jdbcTemplate.update(sql);
+        existenceCache.reset(FILM);
+        AfterCommit.run(() -> {
+            likeBuffer.clear();
+            popularityIndex.clear();
+            likeMatrix.clear();
+            searchIndex.clear();
+        });
     }
 
     public void deleteLike(int filmId, int userId) {
-        String sql = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, filmId, userId);
+        if (likeBuffer.isEnabled()) {
+            bufferLike(filmId, userId, false);
+            return;
+        }
+        if (jdbcTemplate.update(DELETE_LIKE_SQL, filmId, userId) > 0) {
+            jdbcTemplate.update("UPDATE films SET like_count = like_count - 1 WHERE id = ?", filmId);
+            AfterCommit.run(() -> {
+                popularityIndex.changeLikes(filmId, -1);
+                likeMatrix.removeLike(filmId, userId);
+            });
+        }
     }
 
     public List<Film> findAll() {
         String sql = "SELECT * FROM films";
-        return jdbcTemplate.query(sql, filmRowMapper);
+        return hydrate(jdbcTemplate.query(sql, filmRowMapper));
+    }
+
+    // Проверка без загрузки фильма: чаще всего отвечает кэш существования, иначе — запрос по первичному ключу
+    public boolean existsById(int filmId) {
+        return existenceCache.exists(FILM, filmId, id -> {
+            String sql = "SELECT EXISTS (SELECT 1 FROM films WHERE id = ?)";
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, id));
+        });
     }
 
     public Optional<Film> findById(int id) {
         String sql = "SELECT * FROM films WHERE id = ?";
-        List<Film> results = jdbcTemplate.query(sql, filmRowMapper, id);
+        List<Film> results = hydrate(jdbcTemplate.query(sql, filmRowMapper, id));
         return results.stream().findFirst();
     }
 
-    public List<Film> findMostLikedFilms(int count) {
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        String sql = "SELECT id FROM films WHERE id = ANY(?)";
+        return new HashSet<>(jdbcTemplate.queryForList(sql, Integer.class, (Object) ids.toArray(new Integer[0])));
+    }
+
+    public List<Film> findPage(int afterId, int limit) {
+        return hydrate(jdbcTemplate.query(FILMS_PAGE_SQL, filmRowMapper, afterId, limit));
+    }
+
+    /**
+     * Потоковая выгрузка всех фильмов с жанрами для экспорта.
+     * Фильмы и их жанры читаются одним запросом однонаправленным курсором, строки одного фильма
+     * идут подряд благодаря ORDER BY, поэтому в памяти одновременно держится только один фильм.
+     */
+    public void streamAll(int fetchSize, Consumer<Film> consumer) {
         String sql = """
-                SELECT f.*
+                SELECT f.*, fg.genre_id
                 FROM films f
-                LEFT JOIN likes l ON f.id = l.film_id
-                GROUP BY f.id
-                ORDER BY COUNT(l.user_id) DESC
-                LIMIT ?
+                LEFT JOIN film_genres fg ON fg.film_id = f.id
+                ORDER BY f.id, fg.genre_id
                 """;
-        return jdbcTemplate.query(sql, filmRowMapper, count);
+        FilmRowGroup group = new FilmRowGroup(consumer);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rs -> {
+            int filmId = rs.getInt("id");
+            if (group.film == null || group.film.getId() != filmId) {
+                group.flush();
+                group.film = filmRowMapper.mapRow(rs, rs.getRow());
+            }
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                genreRepository.findById(genreId).ifPresent(group.genres::add);
+            }
+        });
+        group.flush();
     }
 
+    // Топ берётся из рейтинга в памяти, из базы загружаются только сами фильмы по id
+    public List<Film> findMostLikedFilms(int count) {
+        return findAllByIds(popularityIndex.top(count));
+    }
+
+    // Фильтры отвечают готовыми корзинами рейтинга, без группировки likes в базе
+    public List<Film> findMostLikedFilms(int count, Integer genreId, Integer year) {
+        return findAllByIds(popularityIndex.top(count, genreId, year));
+    }
+
+    // Поиск целиком в обратном индексе, из базы загружаются только найденные фильмы
+    public List<Film> searchFilms(String query, Set<FilmSearchField> fields, int limit) {
+        return findAllByIds(Arrays.stream(searchIndex.search(query, fields, limit)).boxed().toList());
+    }
+
+    public List<Film> findRecommendations(int userId, int limit) {
+        return findAllByIds(Arrays.stream(likeMatrix.recommend(userId, limit)).boxed().toList());
+    }
+
+    // Отложенные в буфере лайки и снятия важнее состояния в базе
     public boolean isLikeExists(int filmId, int userId) {
-        String sql = "SELECT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
-        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, filmId, userId));
+        Boolean buffered = likeBuffer.likedState(filmId, userId);
+        return buffered != null ? buffered : isLikeStored(filmId, userId);
+    }
+
+    private boolean isLikeStored(int filmId, int userId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(LIKE_EXISTS_SQL, Boolean.class, filmId, userId));
+    }
+
+    public int reconcileLikeCounts() {
+        int fixed = jdbcTemplate.update(RECONCILE_LIKE_COUNTS_SQL);
+        if (fixed > 0) {
+            AfterCommit.run(this::rebuildPopularityIndex);
+        }
+        return fixed;
+    }
+
+    // Рейтинг перечитывается из базы при остановленном приёме лайков, затем догоняет ещё не записанный буфер
+    private void rebuildPopularityIndex() {
+        likeBuffer.whilePaused(pending -> {
+            loadPopularityIndex();
+            pending.forEach(change -> popularityIndex.changeLikes(change.getFilmId(), change.isUnlike() ? -1 : 1));
+        });
     }
 
 
@@ -76,35 +436,104 @@ public class FilmRepositoryImpl implements FilmRepository {
     public Film save(Film film) {
         if (film.getId() > 0) {
             update(film);
-            return film;
+            // счётчик лайков меняется только через лайки, клиентское значение не используется
+            return film.toBuilder().likeCount(popularityIndex.likesOf(film.getId())).build();
         } else {
             return insert(film);
         }
     }
 
+    // Фильмы по списку id одним запросом, в порядке следования id в списке
+    private List<Film> findAllByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String sql = "SELECT * FROM films WHERE id = ANY(?)";
+        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, (Object) ids.toArray(new Integer[0]));
+        Map<Integer, Film> byId = hydrate(films).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     private Film insert(Film film) {
-        String sql = "INSERT INTO films (name, description, release_date, duration, content_rating_id) " +
-                "VALUES (?, ?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
         jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"});
-            ps.setString(1, film.getName());
-            ps.setString(2, film.getDescription());
-            ps.setDate(3, java.sql.Date.valueOf(film.getReleaseDate()));
-            ps.setInt(4, film.getDuration());
-            if (film.getMpa() != null) {
-                ps.setInt(5, film.getMpa().getId());
-            } else {
-                ps.setNull(5, Types.INTEGER);
-            }
+            PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"});
+            setInsertParameters(ps, film);
             return ps;
         }, keyHolder);
         // используем KeyHolder для присвоения фильму id.
-        Film saved = film.toBuilder().id(keyHolder.getKey().intValue()).build();
+        Film saved = film.toBuilder().id(keyHolder.getKey().intValue()).likeCount(0).build();
+        existenceCache.register(FILM, saved.getId());
+        saveGenres(List.of(saved));
+        AfterCommit.run(() -> {
+            popularityIndex.addFilm(saved.getId(), storedGenreIds(saved), saved.getReleaseDate());
+            searchIndex.updateFilm(saved.getId(), saved.getName(), saved.getDescription());
+        });
+        return saved;
+    }
+
+    /**
+     * Пакетная вставка новых фильмов: фильмы и связи с жанрами пишутся двумя batch-запросами
+     * вместо отдельного запроса на каждый фильм и жанр.
+     * Возвращает фильмы с присвоенными id в исходном порядке.
+     */
+    public List<Film> saveAll(List<Film> films) {
+        if (films.isEmpty()) {
+            return List.of();
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setInsertParameters(ps, films.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<Film> saved = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            int id = ((Number) keys.get(i).values().iterator().next()).intValue();
+            saved.add(films.get(i).toBuilder().id(id).likeCount(0).build());
+            existenceCache.register(FILM, id);
+        }
         saveGenres(saved);
+        AfterCommit.run(() -> {
+            saved.forEach(film -> popularityIndex.addFilm(film.getId(), storedGenreIds(film), film.getReleaseDate()));
+            searchIndex.addFilms(saved.stream()
+                    .map(film -> new FilmSearchIndex.Document(film.getId(), film.getName(), film.getDescription()))
+                    .toList());
+        });
         return saved;
     }
 
+    private void setInsertParameters(PreparedStatement ps, Film film) throws SQLException {
+        ps.setString(1, film.getName());
+        ps.setString(2, film.getDescription());
+        if (film.getReleaseDate() != null) {
+            ps.setDate(3, java.sql.Date.valueOf(film.getReleaseDate()));
+        } else {
+            ps.setNull(3, Types.DATE);
+        }
+        ps.setInt(4, film.getDuration());
+        if (film.getMpa() != null) {
+            ps.setInt(5, film.getMpa().getId());
+        } else {
+            ps.setNull(5, Types.INTEGER);
+        }
+    }
+
     private void update(Film film) {
         String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, " +
                 "content_rating_id = ? WHERE id = ?";
@@ -118,30 +547,93 @@ public class FilmRepositoryImpl implements FilmRepository {
                         ? film.getMpa().getId()
                         : null,
                 film.getId());
-        saveGenres(film);
-    }
-
-    // сохраняем жанры
-    private void saveGenres(Film film) {
-
-        // получаем все допустимые genre_id
-        List<Integer> validGenreIds = jdbcTemplate.queryForList(
-                "SELECT id FROM genres",
-                Integer.class
-        );
-
-        // Вставляем только те жанры, которые действительно есть в таблице genres
-        if (film.getGenres() != null) {
-            for (Genre g : film.getGenres()) {
-                int genreId = g.getId();
-                if (validGenreIds.contains(genreId)) {
-                    jdbcTemplate.update(
-                            "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)",
-                            film.getId(), genreId
-                    );
-                }
+        // Без поля genres жанры фильма не меняются. Переданные жанры заменяют прежние целиком:
+        // иначе повторно указанный жанр нарушил бы первичный ключ film_genres
+        boolean genresChanged = film.getGenres() != null;
+        if (genresChanged) {
+            jdbcTemplate.update("DELETE FROM film_genres WHERE film_id = ?", film.getId());
+            saveGenres(List.of(film));
+        }
+        AfterCommit.run(() -> {
+            if (genresChanged) {
+                popularityIndex.updateFilm(film.getId(), storedGenreIds(film), film.getReleaseDate());
+            } else {
+                popularityIndex.updateReleaseDate(film.getId(), film.getReleaseDate());
+            }
+            searchIndex.updateFilm(film.getId(), film.getName(), film.getDescription());
+        });
+    }
+
+    /**
+     * Пакетная гидратация: жанры всех фильмов выборки загружаются одним запросом,
+     * названия жанров и рейтинги берутся из справочников в памяти.
+     * Число запросов не зависит от количества фильмов.
+     */
+    private List<Film> hydrate(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        List<Integer> filmIds = films.stream().map(Film::getId).toList();
+        Map<Integer, Set<Genre>> genresByFilm = genreRepository.findGenresByFilmIds(filmIds);
+
+        return films.stream()
+                .map(film -> assemble(film, genresByFilm.getOrDefault(film.getId(), new LinkedHashSet<>())))
+                .toList();
+    }
+
+    // подставляет жанры и рейтинг из справочника в фильм, полученный из FilmMapper, а счётчик лайков —
+    // из рейтинга в памяти, где учтены и лайки, ещё не записанные из буфера
+    private Film assemble(Film film, Set<Genre> genres) {
+        return film.toBuilder()
+                .genres(genres)
+                .likeCount(popularityIndex.likesOf(film.getId()))
+                .mpa(film.getMpa() != null
+                        ? mpaRepository.findById(film.getMpa().getId()).orElse(null)
+                        : null)
+                .build();
+    }
+
+    // Текущий собираемый фильм при потоковом чтении
+    private final class FilmRowGroup {
+        private final Consumer<Film> consumer;
+        private Film film;
+        private Set<Genre> genres = new LinkedHashSet<>();
+
+        private FilmRowGroup(Consumer<Film> consumer) {
+            this.consumer = consumer;
+        }
+
+        private void flush() {
+            if (film != null) {
+                consumer.accept(assemble(film, genres));
+                film = null;
+                genres = new LinkedHashSet<>();
             }
         }
     }
-}
 
+    // сохраняем жанры одним batch-запросом
+    private void saveGenres(List<Film> films) {
+        List<Object[]> links = new ArrayList<>();
+        for (Film film : films) {
+            for (int genreId : storedGenreIds(film)) {
+                links.add(new Object[]{film.getId(), genreId});
+            }
+        }
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", links);
+        }
+    }
+
+    // Вставляем только те жанры, которые действительно есть в справочнике жанров
+    private List<Integer> storedGenreIds(Film film) {
+        if (film.getGenres() == null) {
+            return List.of();
+        }
+        return film.getGenres().stream()
+                .map(Genre::getId)
+                .filter(genreId -> genreRepository.findById(genreId).isPresent())
+                .distinct()
+                .toList();
+    }
+}
@@ -1,44 +1,74 @@
 package ru.yandex.practicum.filmorate.repository.impl;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.repository.GenreRepository;
 
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+/**
+ * Жанры — статичный справочник, поэтому он целиком загружается при старте и дальше отдаётся из памяти.
+ * Таблица genres меняется только миграцией R__reference_data.sql, а миграции выполняются при старте
+ * до создания репозитория, так что загруженный справочник всегда соответствует таблице.
+ */
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public class GenreRepositoryImpl implements GenreRepository {
+    // План проверяется в QueryPlanTest: жанры фильмов читаются по первичному ключу film_genres
+    static final String FILM_GENRES_SQL =
+            "SELECT film_id, genre_id FROM film_genres WHERE film_id = ANY(?) ORDER BY film_id, genre_id";
+
     private final JdbcTemplate jdbcTemplate;
     private final RowMapper<Genre> genreMapper;
 
+    private volatile ReferenceDictionary<Genre> dictionary;
+
+    @PostConstruct
+    public void loadDictionary() {
+        String sql = "SELECT id, name FROM genres ORDER BY id";
+        dictionary = ReferenceDictionary.of(jdbcTemplate.query(sql, genreMapper), Genre::getId);
+        log.info("Справочник жанров загружен: {} записей", dictionary.all().size());
+    }
+
     @Override
     public List<Genre> findAll() {
-        String sql = "SELECT id, name FROM genres ORDER BY id";
-        return jdbcTemplate.query(sql, genreMapper);
+        return dictionary.all();
     }
 
     @Override
     public Optional<Genre> findById(int id) {
-        String sql = "SELECT id, name FROM genres WHERE id = ?";
-        List<Genre> result = jdbcTemplate.query(sql, genreMapper, id);
-        return result.isEmpty() ? Optional.empty() : Optional.of(result.getFirst());
+        return dictionary.get(id);
     }
 
-    // Получить жанры по film_id (для FilmMapper)
+    /**
+     * Жанры сразу для набора фильмов (для гидратации в FilmRepositoryImpl).
+     * Список id передаётся одним параметром-массивом, поэтому запрос всегда один,
+     * сколько бы фильмов ни было в выборке. Названия жанров берутся из справочника.
+     */
     @Override
-    public Set<Genre> findGenresByFilmId(int filmId) {
-        String sql = "SELECT g.id, g.name " +
-                "FROM genres g " +
-                "JOIN film_genres fg ON g.id = fg.genre_id " +
-                "WHERE fg.film_id = ? ORDER BY g.id";
-        List<Genre> genres = jdbcTemplate.query(sql, genreMapper, filmId);
-        return new HashSet<>(genres);
+    public Map<Integer, Set<Genre>> findGenresByFilmIds(Collection<Integer> filmIds) {
+        Map<Integer, Set<Genre>> result = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return result;
+        }
+        ReferenceDictionary<Genre> genres = dictionary;
+        jdbcTemplate.query(FILM_GENRES_SQL, rs -> {
+            int filmId = rs.getInt("film_id");
+            genres.get(rs.getInt("genre_id")).ifPresent(genre ->
+                    result.computeIfAbsent(filmId, id -> new LinkedHashSet<>()).add(genre));
+        }, (Object) filmIds.toArray(new Integer[0]));
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -1,44 +1,45 @@
 package ru.yandex.practicum.filmorate.repository.impl;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.repository.MpaRepository;
 
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Рейтинги MPA — статичный справочник, он загружается при старте и отдаётся из памяти.
+ * Таблица content_rating меняется только миграцией R__reference_data.sql, которая выполняется
+ * при старте до создания репозитория.
+ */
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public class MpaRepositoryImpl implements MpaRepository {
     private final JdbcTemplate jdbcTemplate;
     private final RowMapper<Mpa> mpaMapper;
 
-    @Override
-    public List<Mpa> findAll() {
+    private volatile ReferenceDictionary<Mpa> dictionary;
+
+    @PostConstruct
+    public void loadDictionary() {
         String sql = "SELECT id, name FROM content_rating ORDER BY id";
-        return jdbcTemplate.query(sql, mpaMapper);
+        dictionary = ReferenceDictionary.of(jdbcTemplate.query(sql, mpaMapper), Mpa::getId);
+        log.info("Справочник рейтингов MPA загружен: {} записей", dictionary.all().size());
     }
 
     @Override
-    public Optional<Mpa> findById(int id) {
-        String sql = "SELECT id, name FROM content_rating WHERE id = ?";
-        List<Mpa> result = jdbcTemplate.query(sql, mpaMapper, id);
-        return result.isEmpty() ? Optional.empty() : Optional.of(result.getFirst());
+    public List<Mpa> findAll() {
+        return dictionary.all();
     }
 
-    // получить рейтинг по mpa_id из базы (для FilmMapper)
     @Override
-    public Mpa findRatingById(int mpaId) {
-        String sql = "SELECT id, name FROM content_rating WHERE id = ?";
-        return jdbcTemplate.query(sql, mpaMapper, mpaId)
-                .stream()
-                .findFirst()
-                .orElseThrow(() ->
-                        new NotFoundException("Возрастной рейтинг с ID =" + mpaId + " не найден.")
-                );
+    public Optional<Mpa> findById(int id) {
+        return dictionary.get(id);
     }
 }
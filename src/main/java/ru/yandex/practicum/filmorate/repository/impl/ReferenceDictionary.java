@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+
+/**
+ * Неизменяемый справочник с доступом по id через массив.
+ * Подходит для небольших таблиц с плотными целочисленными ключами (жанры, рейтинги MPA).
+ * Экземпляр не меняется после создания, поэтому читается из любых потоков без блокировок,
+ * а обновление справочника — это подмена ссылки на новый экземпляр.
+ */
+final class ReferenceDictionary<T> {
+    private final Object[] byId;
+    private final List<T> ordered;
+
+    private ReferenceDictionary(Object[] byId, List<T> ordered) {
+        this.byId = byId;
+        this.ordered = ordered;
+    }
+
+    /**
+     * Строит справочник из записей, уже отсортированных по id.
+     */
+    static <T> ReferenceDictionary<T> of(List<T> items, ToIntFunction<T> idOf) {
+        int maxId = items.stream().mapToInt(idOf).max().orElse(0);
+        Object[] byId = new Object[maxId + 1];
+        for (T item : items) {
+            int id = idOf.applyAsInt(item);
+            if (id < 0) {
+                throw new IllegalStateException("Отрицательный id в справочнике: " + id);
+            }
+            byId[id] = item;
+        }
+        return new ReferenceDictionary<>(byId, List.copyOf(items));
+    }
+
+    List<T> all() {
+        return ordered;
+    }
+
+    boolean contains(int id) {
+        return id >= 0 && id < byId.length && byId[id] != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    Optional<T> get(int id) {
+        return contains(id) ? Optional.of((T) byId[id]) : Optional.empty();
+    }
+}
@@ -1,29 +1,94 @@
 package ru.yandex.practicum.filmorate.repository.impl;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.index.AfterCommit;
+import ru.yandex.practicum.filmorate.index.ExistenceCache;
+import ru.yandex.practicum.filmorate.index.FriendSuggestions;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.index.SocialGraph;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.UserRepository;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import static ru.yandex.practicum.filmorate.index.ExistenceCache.EntityType.USER;
+
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public class UserRepositoryImpl implements UserRepository {
+    // Планы запросов дружбы проверяются в QueryPlanTest: все они читают первичный ключ friends
+    static final String FRIENDSHIP_MERGE_SQL = """
+            MERGE INTO friends f
+            USING (VALUES (CAST(? AS INT), CAST(? AS INT))) AS r (from_id, to_id)
+            ON f.user1_id IN (r.from_id, r.to_id) AND f.user2_id IN (r.from_id, r.to_id)
+            WHEN MATCHED AND f.user1_id = r.to_id AND f.is_confirmed = false THEN
+                UPDATE SET is_confirmed = true
+            WHEN NOT MATCHED THEN
+                INSERT (user1_id, user2_id, is_confirmed) VALUES (r.from_id, r.to_id, false)
+            """;
+    private static final String REQUEST_FRIENDSHIP_SQL =
+            "SELECT user1_id, is_confirmed FROM FINAL TABLE (" + FRIENDSHIP_MERGE_SQL + ")";
+    static final String CONFIRM_FRIENDSHIP_SQL =
+            "UPDATE friends SET is_confirmed = true WHERE user1_id = ? AND user2_id = ? AND is_confirmed = false";
+    static final String REMOVE_FRIENDS_SQL = "DELETE FROM friends WHERE user1_id IN (?, ?) AND user2_id IN (?, ?)";
 
     private final JdbcTemplate jdbcTemplate;
     private final RowMapper<User> userRowMapper;
+    private final ExistenceCache existenceCache;
+    private final SocialGraph socialGraph;
+    private final FriendSuggestions friendSuggestions;
+    private final LikeMatrix likeMatrix;
+
+    @PostConstruct
+    public void loadExistenceCache() {
+        jdbcTemplate.query("SELECT id FROM users", rs -> {
+            existenceCache.register(USER, rs.getInt("id"));
+        });
+    }
+
+    /**
+     * Граф дружбы загружается из friends один раз при старте, дальше обновляется после фиксации
+     * транзакций в makeFriends, confirmFriendship и removeFriends. Запросы о друзьях в базу не ходят,
+     * кроме загрузки самих пользователей по готовому списку id.
+     */
+    @PostConstruct
+    public void loadSocialGraph() {
+        SocialGraph.Loader loader = socialGraph.loader();
+        jdbcTemplate.query("SELECT user1_id, user2_id, is_confirmed FROM friends", rs -> {
+            loader.add(rs.getInt("user1_id"), rs.getInt("user2_id"), rs.getBoolean("is_confirmed"));
+        });
+        loader.install();
+        log.info("Граф дружбы загружен: {} связей, ~{} КБ", socialGraph.edgeCount(),
+                socialGraph.estimatedHeapBytes() / 1024);
+    }
 
     @Override
-    public void confirmFriendship(int confirmingUserId, int friendId) {
-        String sql = "UPDATE friends SET is_confirmed = true WHERE user1_id = ? AND user2_id = ?";
-        jdbcTemplate.update(sql, friendId, confirmingUserId);
+    public boolean confirmFriendship(int confirmingUserId, int friendId) {
+        if (jdbcTemplate.update(CONFIRM_FRIENDSHIP_SQL, friendId, confirmingUserId) == 0) {
+            return false;
+        }
+        AfterCommit.run(() -> socialGraph.confirmEdge(friendId, confirmingUserId));
+        return true;
     }
 
     @Override
@@ -33,31 +98,27 @@ public class UserRepositoryImpl implements UserRepository {
                 DELETE FROM users
                 """;
         jdbcTemplate.batchUpdate(sql);
+        existenceCache.reset(USER);
+        // лайки удалённых пользователей уходят каскадно
+        AfterCommit.run(() -> {
+            socialGraph.clear();
+            likeMatrix.clear();
+        });
     }
 
+    // Для существующей дружбы строка между пользователями должна быть подтверждена
     @Override
     public boolean existsFriendship(int userId, int friendId) {
-        String sql = """
-                SELECT COUNT(*)
-                FROM friends
-                WHERE (user1_id = ? AND user2_id = ? AND is_confirmed = ?)
-                   OR (user2_id = ? AND user1_id = ? AND is_confirmed = ?)
-                """;
-        // Для существующей дружбы оба направления должны быть подтверждены
-        Integer count = jdbcTemplate.queryForObject(
-                sql,
-                Integer.class,
-                userId, friendId, true,
-                userId, friendId, true
-        );
-        return count != null && count > 0;
+        return socialGraph.isConfirmed(userId, friendId);
     }
 
     @Override
     public boolean existsById(int userId) {
-        String sql = "SELECT COUNT(1) FROM users WHERE id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, userId);
-        return count != null && count > 0;
+        return existenceCache.exists(USER, userId, id -> {
+            String sql = "SELECT COUNT(1) FROM users WHERE id = ?";
+            Integer count = jdbcTemplate.queryForObject(sql, Integer.class, id);
+            return count != null && count > 0;
+        });
     }
 
     @Override
@@ -80,51 +141,90 @@ public class UserRepositoryImpl implements UserRepository {
         return results.stream().findFirst();
     }
 
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        String sql = "SELECT id FROM users WHERE id = ANY(?)";
+        return new HashSet<>(jdbcTemplate.queryForList(sql, Integer.class, (Object) ids.toArray(new Integer[0])));
+    }
+
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, userRowMapper, afterId, limit);
+    }
+
+    // Потоковая выгрузка для экспорта: однонаправленный курсор, пользователи не копятся в памяти
+    @Override
+    public void streamAll(int fetchSize, Consumer<User> consumer) {
+        String sql = "SELECT * FROM users ORDER BY id";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rs -> {
+            consumer.accept(userRowMapper.mapRow(rs, rs.getRow()));
+        });
+    }
+
     // Если user1_id добавил в друзья user2_id и выгружаем для него, то добавляем в список
     // Если user1_id добавил в друзья, но выгружаем друзей user2_id, то сначала проверяем подтверждение
     @Override
     public List<User> getFriends(int userId) {
-        String sql = """
-                SELECT u.*
-                FROM users u
-                WHERE u.id IN (
-                SELECT f.user2_id FROM friends f WHERE f.user1_id = ?
-                UNION
-                SELECT f.user1_id FROM friends f WHERE f.user2_id = ? AND f.is_confirmed = true
-                )
-                """;
-        return jdbcTemplate.query(sql, userRowMapper, userId, userId);
+        return findAllByIds(socialGraph.friendsOf(userId));
     }
 
+    // Общие друзья — пересечение двух отсортированных массивов id в тех же терминах, что и getFriends
     @Override
     public List<User> getCommonFriends(int userId1, int userId2) {
-        String sql = """
-                SELECT u.* FROM users u
-                JOIN friends f1 ON (
-                    f1.user1_id = ? AND u.id = f1.user2_id) OR (f1.user2_id = ? AND u.id = f1.user1_id)
-                JOIN friends f2 ON
-                    (f2.user1_id = ? AND u.id = f2.user2_id) OR (f2.user2_id = ? AND u.id = f2.user1_id)
-                """;
-        return jdbcTemplate.query(sql, userRowMapper, userId1, userId2, userId2, userId1);
+        return findAllByIds(socialGraph.commonFriends(userId1, userId2));
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        return findAllByIds(friendSuggestions.suggest(userId, limit));
     }
 
     @Override
     public boolean isValidFriendRequest(int fromUserId, int toUserId) {
-        String sql = "SELECT COUNT(*) FROM friends WHERE user1_id = ? AND user2_id = ? AND is_confirmed = false";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, fromUserId, toUserId);
-        return count != null && count > 0;
+        return socialGraph.hasPendingRequest(fromUserId, toUserId);
     }
 
+    /**
+     * Строка пары ищется условием IN по обоим столбцам, а не OR двух направлений:
+     * с OR H2 сканирует friends целиком, с IN читает первичный ключ (id пользователей различны,
+     * поэтому условие совпадает ровно с двумя возможными строками пары).
+     * FINAL TABLE возвращает изменённую строку тем же запросом: is_confirmed = true — встречная
+     * заявка подтверждена, false — создана новая, нет строки — ничего не изменилось.
+     */
     @Override
-    public void makeFriends(int userId, int friendId, boolean isConfirmed) {
-        String sql = "INSERT INTO friends (user1_id, user2_id, is_confirmed) VALUES (?, ?, ?)";
-        jdbcTemplate.update(sql, userId, friendId, isConfirmed);
+    public Optional<FriendshipStatus> requestFriendship(int userId, int friendId) {
+        List<FriendshipStatus> changed = jdbcTemplate.query(REQUEST_FRIENDSHIP_SQL, (rs, rowNum) ->
+                rs.getBoolean("is_confirmed") ? FriendshipStatus.CONFIRMED : FriendshipStatus.PENDING,
+                userId, friendId);
+        if (changed.isEmpty()) {
+            return Optional.empty();
+        }
+        FriendshipStatus status = changed.getFirst();
+        if (status == FriendshipStatus.CONFIRMED) {
+            AfterCommit.run(() -> socialGraph.confirmEdge(friendId, userId));
+        } else {
+            AfterCommit.run(() -> socialGraph.addEdge(userId, friendId, false));
+        }
+        return Optional.of(status);
     }
 
+    // Тот же приём с IN вместо OR, что и в requestFriendship: удаление читает первичный ключ
     @Override
-    public void removeFriends(int userId, int friendId) {
-        String sql = "DELETE FROM friends WHERE (user1_id = ? AND user2_id = ?) OR (user2_id = ? AND user1_id = ?)";
-        jdbcTemplate.update(sql, userId, friendId, friendId, userId);
+    public boolean removeFriends(int userId, int friendId) {
+        if (jdbcTemplate.update(REMOVE_FRIENDS_SQL, userId, friendId, userId, friendId) == 0) {
+            return false;
+        }
+        AfterCommit.run(() -> socialGraph.removeEdges(userId, friendId));
+        return true;
     }
 
     /**
@@ -142,6 +242,28 @@ public class UserRepositoryImpl implements UserRepository {
         }
     }
 
+    // Пользователи по готовому списку id одним запросом, в порядке списка
+    private List<User> findAllByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        Integer[] params = Arrays.stream(ids).boxed().toArray(Integer[]::new);
+        String sql = "SELECT * FROM users WHERE id = ANY(?)";
+        Map<Integer, User> byId = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            User user = userRowMapper.mapRow(rs, 0);
+            byId.put(user.getId(), user);
+        }, (Object) params);
+        List<User> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            User user = byId.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
     private User insert(User user) {
         String sql = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
@@ -154,7 +276,9 @@ public class UserRepositoryImpl implements UserRepository {
             return ps;
         }, keyHolder);
         // используем KeyHolder для присвоения пользователю id и возвращаем обновленный объект.
-        return user.toBuilder().id(keyHolder.getKey().intValue()).build();
+        User saved = user.toBuilder().id(keyHolder.getKey().intValue()).build();
+        existenceCache.register(USER, saved.getId());
+        return saved;
     }
 
     private void update(User user) {
@@ -1,20 +1,64 @@
 package ru.yandex.practicum.filmorate.service;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeBatchResult;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.Page;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmService {
 
     void addLike(int filmId, int userId);
 
+    /**
+     * Пакетное применение лайков и их снятия с отчётом по каждому событию.
+     */
+    LikeBatchResult applyLikes(List<LikeChange> changes);
+
     Film createFilm(Film film);
 
+    /**
+     * Пакетное создание фильмов с результатом по каждому элементу.
+     */
+    List<BatchItemResult> createFilms(List<Film> films);
+
     void deleteLike(int filmId, int userId);
 
+    /**
+     * Потоковая выгрузка всех фильмов с жанрами и рейтингом.
+     */
+    void exportFilms(Consumer<Film> sink);
+
     List<Film> findMostLikedFilms(int count);
 
-    List<Film> getAllFilms();
+    /**
+     * Самые популярные фильмы с фильтром по жанру и/или году выхода. Null — фильтр не задан.
+     */
+    List<Film> findMostLikedFilms(int count, Integer genreId, Integer year);
+
+    /**
+     * Полнотекстовый поиск по названию и/или описанию. Null by — по обоим полям, null limit — 10 фильмов.
+     */
+    List<Film> searchFilms(String query, List<String> by, Integer limit);
+
+    /**
+     * Рекомендации фильмов для пользователя по похожим лайкам. Null limit — 10 рекомендаций.
+     */
+    List<Film> getRecommendations(int userId, Integer limit);
+
+    /**
+     * Выдача без пагинации, не больше maxUnpaged записей. Если записей больше, у страницы есть курсор
+     * продолжения: клиент узнаёт об обрезке и может дочитать остальное постранично.
+     */
+    Page<Film> getAllFilms();
+
+    /**
+     * Страница keyset-пагинации. Пустой cursor — с начала, null limit — размер страницы по умолчанию.
+     */
+    Page<Film> getFilmsPage(String cursor, Integer limit);
 
     Film getFilmById(int filmId);
 
@@ -1,8 +1,11 @@
 package ru.yandex.practicum.filmorate.service;
 
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
 
@@ -10,15 +13,37 @@ public interface UserService {
 
     User createUser(User user);
 
-    List<User> getAllUsers();
+    /**
+     * Потоковая выгрузка всех пользователей.
+     */
+    void exportUsers(Consumer<User> sink);
+
+    /**
+     * Выдача без пагинации, не больше maxUnpaged записей. Если записей больше, у страницы есть курсор
+     * продолжения: клиент узнаёт об обрезке и может дочитать остальное постранично.
+     */
+    Page<User> getAllUsers();
+
+    /**
+     * Страница keyset-пагинации. Пустой cursor — с начала, null limit — размер страницы по умолчанию.
+     */
+    Page<User> getUsersPage(String cursor, Integer limit);
 
     List<User> getCommonFriends(int userId, int otherUserId);
 
     User getUserById(int id);
 
+    /**
+     * Рекомендации друзей по числу общих друзей. Null limit — 10 рекомендаций.
+     */
+    List<User> getFriendSuggestions(int id, Integer limit);
+
     List<User> getUserFriends(int id);
 
-    void makeFriends(int userId, int friendId);
+    /**
+     * Заявка в друзья или подтверждение встречной заявки. Возвращает получившееся состояние.
+     */
+    FriendshipStatus makeFriends(int userId, int friendId);
 
     void removeFriend(int userId, int friendId);
 
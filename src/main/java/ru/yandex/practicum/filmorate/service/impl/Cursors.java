@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.service.impl;
+
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Непрозрачный курсор keyset-пагинации. Внутри — id последней отданной записи,
+ * клиенту он виден только как строка base64.
+ */
+final class Cursors {
+    private static final String PREFIX = "id:";
+
+    private Cursors() {
+    }
+
+    static int decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        int afterId;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            afterId = raw.startsWith(PREFIX) ? Integer.parseInt(raw.substring(PREFIX.length())) : -1;
+        } catch (IllegalArgumentException e) { // в том числе NumberFormatException
+            afterId = -1;
+        }
+        if (afterId < 0) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+        }
+        return afterId;
+    }
+
+    static void validateLimit(int limit, int maxLimit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("Параметр limit должен быть от 1 до " + maxLimit);
+        }
+    }
+
+    static String encode(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Собирает страницу из выборки размером limit + 1: лишняя запись означает, что есть продолжение.
+     */
+    static <T> Page<T> toPage(List<T> fetched, int limit, ToIntFunction<T> idOf) {
+        if (fetched.size() <= limit) {
+            return Page.<T>builder().items(fetched).build();
+        }
+        List<T> items = fetched.subList(0, limit);
+        return Page.<T>builder()
+                .items(List.copyOf(items))
+                .nextCursor(encode(idOf.applyAsInt(items.getLast())))
+                .build();
+    }
+}
@@ -1,30 +1,67 @@
 package ru.yandex.practicum.filmorate.service.impl;
 
+import jakarta.validation.Validator;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.config.BatchProperties;
+import ru.yandex.practicum.filmorate.config.ExportProperties;
+import ru.yandex.practicum.filmorate.config.PaginationProperties;
+import ru.yandex.practicum.filmorate.config.RecommendationProperties;
+import ru.yandex.practicum.filmorate.config.SearchProperties;
 import ru.yandex.practicum.filmorate.exception.InvalidJsonFieldException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.OperationNotAllowedException;
+import ru.yandex.practicum.filmorate.index.EntityVersions;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchField;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeAction;
+import ru.yandex.practicum.filmorate.model.LikeBatchResult;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.repository.FilmRepository;
 import ru.yandex.practicum.filmorate.repository.GenreRepository;
 import ru.yandex.practicum.filmorate.repository.MpaRepository;
 import ru.yandex.practicum.filmorate.repository.UserRepository;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @AllArgsConstructor
 public class FilmServiceImpl implements FilmService {
+    private static final int DEFAULT_RECOMMENDATIONS = 10;
+    private static final int DEFAULT_SEARCH_RESULTS = 10;
+
     private final FilmRepository filmRepository;
     private final UserRepository userRepository;
     private final MpaRepository mpaRepository;
     private final GenreRepository genreRepository;
+    private final PaginationProperties paginationProperties;
+    private final ExportProperties exportProperties;
+    private final BatchProperties batchProperties;
+    private final RecommendationProperties recommendationProperties;
+    private final SearchProperties searchProperties;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityVersions entityVersions;
 
     @Override
     @Transactional
@@ -35,6 +72,68 @@ public class FilmServiceImpl implements FilmService {
             throw new OperationNotAllowedException("Лайк уже установлен!");
         }
         filmRepository.addLike(filmId, userId);
+        entityVersions.filmChanged(filmId);
+    }
+
+    /**
+     * Пакетная обработка лайков для повторного проигрывания событий.
+     * Повторы одной пары схлопываются в памяти (учитывается последнее событие), существование
+     * фильмов и пользователей проверяется двумя запросами с IN, изменения пишутся batch-запросами.
+     */
+    @Override
+    @Transactional
+    public LikeBatchResult applyLikes(List<LikeChange> changes) {
+        if (changes.size() > batchProperties.maxSize()) {
+            throw new IllegalArgumentException("В пакете не может быть больше "
+                    + batchProperties.maxSize() + " событий.");
+        }
+        Map<Long, LikeChange> latest = new LinkedHashMap<>();
+        List<LikeChange> duplicates = new ArrayList<>();
+        for (LikeChange change : changes) {
+            if (change == null) {
+                continue;
+            }
+            LikeChange normalized = change.getAction() == null
+                    ? change.toBuilder().action(LikeAction.LIKE).build()
+                    : change;
+            LikeChange previous = latest.put(pairKey(normalized), normalized);
+            if (previous != null) {
+                duplicates.add(previous);
+            }
+        }
+
+        Set<Integer> existingFilms = filmRepository.findExistingIds(latest.values().stream()
+                .map(LikeChange::getFilmId)
+                .collect(Collectors.toSet()));
+        Set<Integer> existingUsers = userRepository.findExistingIds(latest.values().stream()
+                .map(LikeChange::getUserId)
+                .collect(Collectors.toSet()));
+        List<LikeChange> valid = new ArrayList<>();
+        List<LikeChange> invalid = new ArrayList<>();
+        for (LikeChange change : latest.values()) {
+            if (existingFilms.contains(change.getFilmId()) && existingUsers.contains(change.getUserId())) {
+                valid.add(change);
+            } else {
+                invalid.add(change);
+            }
+        }
+
+        List<LikeChange> applied = filmRepository.applyLikeChanges(valid);
+        applied.stream()
+                .map(LikeChange::getFilmId)
+                .distinct()
+                .forEach(entityVersions::filmChanged);
+        // события, не изменившие состояние (лайк уже стоял или его не было), тоже считаем повторами
+        Set<LikeChange> appliedSet = new HashSet<>(applied);
+        valid.stream()
+                .filter(change -> !appliedSet.contains(change))
+                .forEach(duplicates::add);
+
+        return LikeBatchResult.builder()
+                .applied(applied)
+                .duplicates(duplicates)
+                .invalid(invalid)
+                .build();
     }
 
     @Override
@@ -45,7 +144,67 @@ public class FilmServiceImpl implements FilmService {
         }
         validateMpaId(film);
         validateGenreId(film);
-        return filmRepository.save(film);
+        // Версия нового id тоже меняется: ответ 404 на этот адрес мог попасть в кэш вместе с ETag
+        Film created = filmRepository.save(film);
+        entityVersions.filmChanged(created.getId());
+        return created;
+    }
+
+    /**
+     * Пакетное создание фильмов. Каждый элемент проверяется отдельно по справочникам в памяти,
+     * невалидные отклоняются с описанием ошибок. Остальные пишутся порциями по chunkSize,
+     * каждая порция — в своей транзакции, так что ошибка записи одной порции не прерывает остальные.
+     */
+    @Override
+    public List<BatchItemResult> createFilms(List<Film> films) {
+        if (films.size() > batchProperties.maxSize()) {
+            throw new IllegalArgumentException("В пакете не может быть больше "
+                    + batchProperties.maxSize() + " фильмов.");
+        }
+        BatchItemResult[] results = new BatchItemResult[films.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            List<String> errors = validateForBatch(films.get(i));
+            if (errors.isEmpty()) {
+                validIndexes.add(i);
+            } else {
+                results[i] = BatchItemResult.builder()
+                        .index(i)
+                        .status(BatchItemStatus.REJECTED)
+                        .errors(errors)
+                        .build();
+            }
+        }
+
+        int chunkSize = batchProperties.chunkSize();
+        for (int from = 0; from < validIndexes.size(); from += chunkSize) {
+            List<Integer> chunk = validIndexes.subList(from, Math.min(from + chunkSize, validIndexes.size()));
+            List<Film> toSave = chunk.stream().map(films::get).toList();
+            try {
+                List<Film> saved = transactionTemplate.execute(status -> filmRepository.saveAll(toSave));
+                saved.forEach(created -> entityVersions.filmChanged(created.getId()));
+                for (int j = 0; j < chunk.size(); j++) {
+                    results[chunk.get(j)] = BatchItemResult.builder()
+                            .index(chunk.get(j))
+                            .id(saved.get(j).getId())
+                            .status(BatchItemStatus.CREATED)
+                            .errors(List.of())
+                            .build();
+                }
+            } catch (DataAccessException e) {
+                log.error("Не удалось записать порцию фильмов {}..{}: {}",
+                        chunk.getFirst(), chunk.getLast(), e.getMessage());
+                String error = "Ошибка записи в базу: " + e.getMostSpecificCause().getMessage();
+                for (int index : chunk) {
+                    results[index] = BatchItemResult.builder()
+                            .index(index)
+                            .status(BatchItemStatus.FAILED)
+                            .errors(List.of(error))
+                            .build();
+                }
+            }
+        }
+        return List.of(results);
     }
 
     @Override
@@ -54,25 +213,82 @@ public class FilmServiceImpl implements FilmService {
         validateFilmExists(filmId);
         validateUserExists(userId);
         filmRepository.deleteLike(filmId, userId);
+        entityVersions.filmChanged(filmId);
+    }
+
+    @Override
+    public void exportFilms(Consumer<Film> sink) {
+        filmRepository.streamAll(exportProperties.fetchSize(), sink);
+    }
+
+    // Выдача без пагинации ограничена, чтобы не материализовать в памяти всю таблицу
+    @Override
+    public Page<Film> getAllFilms() {
+        int maxUnpaged = paginationProperties.maxUnpaged();
+        return Cursors.toPage(filmRepository.findPage(0, maxUnpaged + 1), maxUnpaged, Film::getId);
     }
 
     @Override
-    public List<Film> getAllFilms() {
-        return filmRepository.findAll();
+    public Page<Film> getFilmsPage(String cursor, Integer limit) {
+        int pageSize = limit != null ? limit : paginationProperties.defaultLimit();
+        Cursors.validateLimit(pageSize, paginationProperties.maxLimit());
+        int afterId = Cursors.decode(cursor);
+        return Cursors.toPage(filmRepository.findPage(afterId, pageSize + 1), pageSize, Film::getId);
     }
 
     @Override
     public Film getFilmById(int filmId) {
-        validateFilmExists(filmId);
-        return filmRepository.findById(filmId).get();
+        return filmRepository.findById(filmId)
+                .orElseThrow(() -> new NotFoundException("Фильм с ID " + filmId + " не найден"));
     }
 
     @Override
     public List<Film> findMostLikedFilms(int count) {
+        return findMostLikedFilms(count, null, null);
+    }
+
+    @Override
+    public List<Film> findMostLikedFilms(int count, Integer genreId, Integer year) {
         if (count <= 0) {
             throw new IllegalArgumentException("Параметр count должен быть положительным числом");
         }
-        return filmRepository.findMostLikedFilms(count);
+        if (genreId != null && genreRepository.findById(genreId).isEmpty()) {
+            throw new NotFoundException("Жанр с ID " + genreId + " не найден");
+        }
+        if (genreId == null && year == null) {
+            return filmRepository.findMostLikedFilms(count);
+        }
+        return filmRepository.findMostLikedFilms(count, genreId, year);
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, List<String> by, Integer limit) {
+        int size = limit != null ? limit : DEFAULT_SEARCH_RESULTS;
+        Cursors.validateLimit(size, searchProperties.maxLimit());
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Параметр query не должен быть пустым");
+        }
+        Set<FilmSearchField> fields = EnumSet.noneOf(FilmSearchField.class);
+        if (by == null || by.isEmpty()) {
+            fields = EnumSet.allOf(FilmSearchField.class);
+        } else {
+            for (String field : by) {
+                try {
+                    fields.add(FilmSearchField.valueOf(field.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Параметр by допускает только title и description: " + field);
+                }
+            }
+        }
+        return filmRepository.searchFilms(query, fields, size);
+    }
+
+    @Override
+    public List<Film> getRecommendations(int userId, Integer limit) {
+        int size = limit != null ? limit : DEFAULT_RECOMMENDATIONS;
+        Cursors.validateLimit(size, recommendationProperties.maxLimit());
+        validateUserExists(userId);
+        return filmRepository.findRecommendations(userId, size);
     }
 
     @Override
@@ -81,18 +297,46 @@ public class FilmServiceImpl implements FilmService {
         validateFilmExists(film.getId());
         validateMpaId(film);
         validateGenreId(film);
-        return filmRepository.save(film);
+        Film updated = filmRepository.save(film);
+        entityVersions.filmChanged(film.getId());
+        return updated;
+    }
+
+    private static long pairKey(LikeChange change) {
+        return ((long) change.getFilmId() << 32) | (change.getUserId() & 0xFFFFFFFFL);
     }
 
     // вспомогательные методы валидации
+    private List<String> validateForBatch(Film film) {
+        if (film == null) {
+            return List.of("Пустой элемент пакета.");
+        }
+        List<String> errors = new ArrayList<>();
+        validator.validate(film).forEach(violation -> errors.add(violation.getMessage()));
+        if (film.getId() != 0) {
+            errors.add("ID не должен быть указан при создании фильма.");
+        }
+        if (film.getMpa() != null && mpaRepository.findById(film.getMpa().getId()).isEmpty()) {
+            errors.add("MPA с ID = " + film.getMpa().getId() + " не найден.");
+        }
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                if (genreRepository.findById(genre.getId()).isEmpty()) {
+                    errors.add("Жанр с ID = " + genre.getId() + " не найден.");
+                }
+            }
+        }
+        return errors;
+    }
+
     private void validateFilmExists(int filmId) {
-        if (filmRepository.findById(filmId).isEmpty()) {
+        if (!filmRepository.existsById(filmId)) {
             throw new NotFoundException("Фильм с ID " + filmId + " не найден");
         }
     }
 
     private void validateUserExists(int userId) {
-        if (userRepository.findById(userId).isEmpty()) {
+        if (!userRepository.existsById(userId)) {
             throw new NotFoundException("Пользователь с ID " + userId + " не найден");
         }
     }
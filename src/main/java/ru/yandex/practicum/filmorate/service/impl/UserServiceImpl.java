@@ -4,34 +4,44 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.ExportProperties;
+import ru.yandex.practicum.filmorate.config.PaginationProperties;
+import ru.yandex.practicum.filmorate.config.SuggestionProperties;
 import ru.yandex.practicum.filmorate.exception.EmailAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exception.InvalidJsonFieldException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.OperationNotAllowedException;
+import ru.yandex.practicum.filmorate.index.EntityVersions;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.UserRepository;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 @AllArgsConstructor
 public class UserServiceImpl implements UserService {
+    private static final int DEFAULT_SUGGESTIONS = 10;
 
     private final UserRepository userRepository;
+    private final PaginationProperties paginationProperties;
+    private final ExportProperties exportProperties;
+    private final SuggestionProperties suggestionProperties;
+    private final EntityVersions entityVersions;
 
     @Override
     @Transactional
     public void confirmFriendship(int userId, int friendId) {
         validateUsersExist(userId, friendId);
 
-        // проверяем, что запрос на дружбу был от friendId к userId
-        if (!userRepository.isValidFriendRequest(friendId, userId)) {
+        // подтверждение проходит, только если есть неподтверждённый запрос от friendId к userId
+        if (!userRepository.confirmFriendship(userId, friendId)) {
             throw new NotFoundException("Не найден запрос от указанного пользователя: " + friendId);
         }
-
-        userRepository.confirmFriendship(userId, friendId);
     }
 
     @Override
@@ -52,12 +62,30 @@ public class UserServiceImpl implements UserService {
             user = user.toBuilder().name(user.getLogin()).build();
         }
 
-        return userRepository.save(user);
+        // Версия нового id тоже меняется: ответ 404 на этот адрес мог попасть в кэш вместе с ETag
+        User created = userRepository.save(user);
+        entityVersions.userChanged(created.getId());
+        return created;
+    }
+
+    @Override
+    public void exportUsers(Consumer<User> sink) {
+        userRepository.streamAll(exportProperties.fetchSize(), sink);
+    }
+
+    // Выдача без пагинации ограничена, чтобы не материализовать в памяти всю таблицу
+    @Override
+    public Page<User> getAllUsers() {
+        int maxUnpaged = paginationProperties.maxUnpaged();
+        return Cursors.toPage(userRepository.findPage(0, maxUnpaged + 1), maxUnpaged, User::getId);
     }
 
     @Override
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public Page<User> getUsersPage(String cursor, Integer limit) {
+        int pageSize = limit != null ? limit : paginationProperties.defaultLimit();
+        Cursors.validateLimit(pageSize, paginationProperties.maxLimit());
+        int afterId = Cursors.decode(cursor);
+        return Cursors.toPage(userRepository.findPage(afterId, pageSize + 1), pageSize, User::getId);
     }
 
     @Override
@@ -66,6 +94,14 @@ public class UserServiceImpl implements UserService {
         return userRepository.getCommonFriends(userId, otherUserId);
     }
 
+    @Override
+    public List<User> getFriendSuggestions(int id, Integer limit) {
+        int size = limit != null ? limit : DEFAULT_SUGGESTIONS;
+        Cursors.validateLimit(size, suggestionProperties.maxLimit());
+        validateUserExists(id);
+        return userRepository.getFriendSuggestions(id, size);
+    }
+
     @Override
     public User getUserById(int id) {
         return userRepository.findById(id)
@@ -78,24 +114,19 @@ public class UserServiceImpl implements UserService {
         return userRepository.getFriends(id);
     }
 
+    // Переход «нет связи → заявка → дружба» выполняется одним MERGE в репозитории.
+    // Проверки ниже нужны только для текста ошибки и читают граф дружбы в памяти.
     @Override
     @Transactional
-    public void makeFriends(int userId, int friendId) {
+    public FriendshipStatus makeFriends(int userId, int friendId) {
         validateBasicRequest(userId, friendId);
 
-        if (userRepository.existsFriendship(userId, friendId)) {
-            throw new OperationNotAllowedException("Пользователи уже являются друзьями.");
-        }
-        // проверяем на повторный запрос
-        if (userRepository.isValidFriendRequest(userId, friendId)) {
-            throw new OperationNotAllowedException("Нельзя отправить запрос на добавление в друзья дважды.");
-        }
-        // проверяем, есть ли неподтвержденный запрос от friendId к userId
-        if (userRepository.isValidFriendRequest(friendId, userId)) {
-            userRepository.confirmFriendship(userId, friendId);
-        } else if (!userRepository.isValidFriendRequest(userId, friendId)) { // Если запроса нет - создаем новый
-            userRepository.makeFriends(userId, friendId, false);
-        }
+        return userRepository.requestFriendship(userId, friendId).orElseThrow(() -> {
+            if (userRepository.existsFriendship(userId, friendId)) {
+                return new OperationNotAllowedException("Пользователи уже являются друзьями.");
+            }
+            return new OperationNotAllowedException("Нельзя отправить запрос на добавление в друзья дважды.");
+        });
     }
 
     @Override
@@ -108,10 +139,12 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public User updateUser(User user) {
-        return userRepository.findById(user.getId())
+        User updated = userRepository.findById(user.getId())
                 .map(existingUser -> userRepository.save(user))
                 .orElseThrow(() -> new NotFoundException(
                         "Обновление невозможно. Пользователь с ID " + user.getId() + " не найден."));
+        entityVersions.userChanged(user.getId());
+        return updated;
     }
 
     // вспомогательные методы валидации
@@ -1,3 +1,4 @@
+-- Справочники жанров и рейтингов MPA. Повторяемая миграция: перезапускается при изменении файла.
 MERGE INTO genres (id, name) VALUES
                                   (1, 'Комедия'),
                                   (2, 'Драма'),
@@ -11,4 +12,4 @@ MERGE INTO content_rating (id, name) VALUES
                                (2, 'PG'),
                                (3, 'PG-13'),
                                (4, 'R'),
-                               (5, 'NC-17');
\ No newline at end of file
+                               (5, 'NC-17');
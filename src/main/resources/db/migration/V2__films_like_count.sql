@@ -0,0 +1,5 @@
+-- Денормализованный счётчик лайков и индекс для топа популярных фильмов.
+-- IF NOT EXISTS — для баз, созданных через schema.sql и принятых Flyway как baseline.
+ALTER TABLE films ADD COLUMN IF NOT EXISTS like_count INT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS films_like_count_idx ON films (like_count DESC, id);
@@ -0,0 +1,14 @@
+-- Индексы под обратные обходы связей. Второй столбец делает индекс покрывающим:
+-- запросу не нужно читать строку таблицы, достаточно записи индекса.
+
+-- Входящие заявки и друзья пользователя: WHERE user2_id = ? AND is_confirmed = true
+CREATE INDEX IF NOT EXISTS friends_user2_confirmed_idx ON friends (user2_id, is_confirmed, user1_id);
+
+-- Лайки пользователя (рекомендации, каскадное удаление пользователя)
+CREATE INDEX IF NOT EXISTS likes_user_idx ON likes (user_id, film_id);
+
+-- Фильмы жанра (фильтрация по жанру, каскадное удаление жанра)
+CREATE INDEX IF NOT EXISTS film_genres_genre_idx ON film_genres (genre_id, film_id);
+
+-- films(content_rating_id) отдельно не индексируется: H2 сам строит индекс под внешний ключ,
+-- а покрывающий вариант рейтингу не нужен — по нему не выбираются списки фильмов.
@@ -6,10 +6,20 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.InvalidJsonFieldException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.OperationNotAllowedException;
+import ru.yandex.practicum.filmorate.index.EntityVersions;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeAction;
+import ru.yandex.practicum.filmorate.model.LikeBatchResult;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.FilmRepository;
 import ru.yandex.practicum.filmorate.repository.MpaRepository;
@@ -17,7 +27,12 @@ import ru.yandex.practicum.filmorate.repository.UserRepository;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,6 +52,15 @@ class FilmServiceTest {
     @Autowired
     private MpaRepository mpaRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityVersions entityVersions;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @BeforeEach
     void beforeEach() {
         filmRepository.deleteAll();
@@ -67,6 +91,27 @@ class FilmServiceTest {
         assertEquals("Дюна", fromDb.getName());
     }
 
+    @Test
+    void createFilmWithGenres() {
+        Film input = Film.builder()
+                .id(0)
+                .name("Шрек")
+                .description("Мультфильм про огра")
+                .releaseDate(LocalDate.of(2001, 5, 18))
+                .duration(90)
+                .mpa(mpaRepository.findAll().getFirst())
+                .genres(Set.of(Genre.builder().id(1).build(), Genre.builder().id(3).build()))
+                .build();
+
+        Film created = filmService.createFilm(input);
+
+        Film fromDb = filmService.getFilmById(created.getId());
+        assertEquals(List.of(1, 3), fromDb.getGenres().stream().map(Genre::getId).toList());
+        assertEquals("Комедия", fromDb.getGenres().iterator().next().getName());
+        assertEquals(mpaRepository.findAll().getFirst(), fromDb.getMpa());
+        assertEquals(2, filmService.getAllFilms().getItems().getFirst().getGenres().size());
+    }
+
     @Test
     void createFilmWithId() {
         Film bad = Film.builder()
@@ -82,6 +127,52 @@ class FilmServiceTest {
         assertTrue(filmRepository.findAll().isEmpty());
     }
 
+    @Test
+    void createFilmsBatch() {
+        Film valid = Film.builder()
+                .name("Valid")
+                .description("d")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(mpaRepository.findAll().getFirst())
+                .genres(Set.of(Genre.builder().id(1).build()))
+                .build();
+        Film blankName = valid.toBuilder().name(" ").build();
+        Film unknownMpa = valid.toBuilder().mpa(Mpa.builder().id(999).build()).build();
+
+        List<BatchItemResult> results = filmService.createFilms(List.of(valid, blankName, unknownMpa, valid));
+
+        assertEquals(List.of(BatchItemStatus.CREATED, BatchItemStatus.REJECTED,
+                        BatchItemStatus.REJECTED, BatchItemStatus.CREATED),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(List.of("Название не может быть пустым."), results.get(1).getErrors());
+        assertEquals(2, filmService.getAllFilms().getItems().size());
+
+        Film fromDb = filmService.getFilmById(results.getFirst().getId());
+        assertEquals(1, fromDb.getGenres().size());
+    }
+
+    // Фильмы из пакетной вставки регистрируются в кэше существования, как и созданные по одному
+    @Test
+    void filmsCreatedInBatchAreFoundByExistsById() {
+        Film film = Film.builder()
+                .name("Batch")
+                .description("d")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(mpaRepository.findAll().getFirst())
+                .build();
+        List<BatchItemResult> results = filmService.createFilms(List.of(film, film));
+        User user = userRepository.save(User.builder().email("batch@user.ru").login("batch").build());
+
+        for (BatchItemResult result : results) {
+            assertTrue(filmRepository.existsById(result.getId()));
+            filmService.addLike(result.getId(), user.getId());
+        }
+        assertTrue(userRepository.existsById(user.getId()));
+        assertFalse(filmRepository.existsById(results.getLast().getId() + 1));
+    }
+
     @Test
     void getAllFilms() {
         filmService.createFilm(Film.builder()
@@ -99,10 +190,38 @@ class FilmServiceTest {
                 .mpa(mpaRepository.findAll().getFirst())
                 .duration(100).build());
 
-        List<Film> all = filmService.getAllFilms();
+        List<Film> all = filmService.getAllFilms().getItems();
         assertEquals(2, all.size());
     }
 
+    @Test
+    void exportFilms() {
+        Film withGenres = filmService.createFilm(Film.builder()
+                .id(0)
+                .name("A")
+                .description("d")
+                .releaseDate(LocalDate.now())
+                .mpa(mpaRepository.findAll().getFirst())
+                .genres(Set.of(Genre.builder().id(2).build(), Genre.builder().id(4).build()))
+                .duration(90).build());
+        Film withoutGenres = filmService.createFilm(Film.builder()
+                .id(0)
+                .name("B")
+                .description("d")
+                .releaseDate(LocalDate.now())
+                .duration(100).build());
+
+        List<Film> exported = new ArrayList<>();
+        filmService.exportFilms(exported::add);
+
+        assertEquals(List.of(withGenres.getId(), withoutGenres.getId()),
+                exported.stream().map(Film::getId).toList());
+        assertEquals(List.of(2, 4), exported.getFirst().getGenres().stream().map(Genre::getId).toList());
+        assertEquals(mpaRepository.findAll().getFirst(), exported.getFirst().getMpa());
+        assertTrue(exported.getLast().getGenres().isEmpty());
+        assertNull(exported.getLast().getMpa());
+    }
+
     @Test
     void updateFilm() {
         Film orig = filmService.createFilm(Film.builder()
@@ -120,6 +239,29 @@ class FilmServiceTest {
         assertEquals("Updated", fromDb.getName());
     }
 
+    @Test
+    void updateFilmWithoutGenresKeepsGenres() {
+        Film orig = filmService.createFilm(Film.builder()
+                .name("Orig").description("d")
+                .releaseDate(LocalDate.of(2001, 1, 1)).duration(120)
+                .mpa(mpaRepository.findAll().getFirst())
+                .genres(Set.of(Genre.builder().id(1).build()))
+                .build());
+
+        filmService.updateFilm(orig.toBuilder()
+                .name("Updated")
+                .releaseDate(LocalDate.of(2002, 1, 1))
+                .genres(null)
+                .build());
+
+        Film fromDb = filmService.getFilmById(orig.getId());
+        assertEquals("Updated", fromDb.getName());
+        assertEquals(Set.of(1), fromDb.getGenres().stream().map(Genre::getId).collect(Collectors.toSet()));
+        // год сменился, жанровые корзины рейтинга остались
+        assertEquals(List.of(orig.getId()), ids(filmService.findMostLikedFilms(10, 1, 2002)));
+        assertEquals(List.of(), filmService.findMostLikedFilms(10, 1, 2001));
+    }
+
     @Test
     void updateNonExistingFilm() {
         Film non = Film.builder()
@@ -159,6 +301,37 @@ class FilmServiceTest {
         assertTrue(filmRepository.isLikeExists(savedFilm.getId(), savedUser.getId()));
     }
 
+    @Test
+    void filmVersionChangesOnLike() {
+        User savedUser = userRepository.save(User.builder()
+                .id(0)
+                .email("etag@user.ru")
+                .login("etaguser")
+                .name("ETag User")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        Film savedFilm = filmService.createFilm(Film.builder()
+                .id(0)
+                .name("ETag Film")
+                .description("d")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(mpaRepository.findAll().getFirst())
+                .build());
+        String filmTag = entityVersions.filmTag(savedFilm.getId());
+        String listTag = entityVersions.filmListTag();
+
+        filmService.addLike(savedFilm.getId(), savedUser.getId());
+        assertNotEquals(filmTag, entityVersions.filmTag(savedFilm.getId()));
+        assertNotEquals(listTag, entityVersions.filmListTag());
+
+        // Отклонённая запись версию не меняет
+        String likedTag = entityVersions.filmTag(savedFilm.getId());
+        assertThrows(OperationNotAllowedException.class,
+                () -> filmService.addLike(savedFilm.getId(), savedUser.getId()));
+        assertEquals(likedTag, entityVersions.filmTag(savedFilm.getId()));
+    }
+
     @Test
     void addLikeFilmNotFound() {
         User user = User.builder()
@@ -288,6 +461,107 @@ class FilmServiceTest {
         assertEquals(2, top.size());
         assertEquals(film1.getId(), top.get(0).getId());
         assertEquals(film2.getId(), top.get(1).getId());
+        assertEquals(2, top.get(0).getLikeCount());
+        assertEquals(1, top.get(1).getLikeCount());
+
+        filmService.deleteLike(film1.getId(), savedUser1.getId());
+        filmService.deleteLike(film1.getId(), savedUser2.getId());
+        top = filmService.findMostLikedFilms(2);
+        assertEquals(film2.getId(), top.get(0).getId());
+        assertEquals(0, filmService.getFilmById(film1.getId()).getLikeCount());
+    }
+
+    @Test
+    void reconcileLikeCounts() {
+        User user = userRepository.save(User.builder()
+                .id(0)
+                .email("test@user.ru")
+                .login("testuser")
+                .build());
+        Film film = filmRepository.save(Film.builder()
+                .id(0)
+                .name("Test Film")
+                .description("Test Desc")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(mpaRepository.findAll().getFirst())
+                .build());
+        filmService.addLike(film.getId(), user.getId());
+        assertEquals(0, filmRepository.reconcileLikeCounts());
+
+        // портим счётчик в обход сервиса
+        jdbcTemplate.update("UPDATE films SET like_count = 42 WHERE id = ?", film.getId());
+        assertEquals(1, filmRepository.reconcileLikeCounts());
+        assertEquals(1, filmService.getFilmById(film.getId()).getLikeCount());
+    }
+
+    @Test
+    void applyLikesBatch() {
+        User user1 = userRepository.save(User.builder().email("u1@user.ru").login("user1").build());
+        User user2 = userRepository.save(User.builder().email("u2@user.ru").login("user2").build());
+        Film film = filmRepository.save(Film.builder()
+                .name("Film")
+                .description("d")
+                .releaseDate(LocalDate.of(2001, 1, 1))
+                .duration(100)
+                .mpa(mpaRepository.findAll().getFirst())
+                .build());
+        filmService.addLike(film.getId(), user2.getId());
+
+        LikeChange like1 = LikeChange.builder().filmId(film.getId()).userId(user1.getId()).build();
+        LikeChange repeatedLike1 = like1.toBuilder().action(LikeAction.LIKE).build();
+        LikeChange existingLike2 = LikeChange.builder().filmId(film.getId()).userId(user2.getId()).build();
+        LikeChange unknownFilm = LikeChange.builder().filmId(9999).userId(user1.getId()).build();
+
+        LikeBatchResult result = filmService.applyLikes(List.of(like1, existingLike2, repeatedLike1, unknownFilm));
+
+        assertEquals(List.of(repeatedLike1), result.getApplied());
+        assertEquals(2, result.getDuplicates().size());
+        assertEquals(List.of(unknownFilm.toBuilder().action(LikeAction.LIKE).build()), result.getInvalid());
+        assertTrue(filmRepository.isLikeExists(film.getId(), user1.getId()));
+        assertEquals(2, filmService.getFilmById(film.getId()).getLikeCount());
+        assertEquals(2, filmService.findMostLikedFilms(1).getFirst().getLikeCount());
+
+        LikeChange unlike = like1.toBuilder().action(LikeAction.UNLIKE).build();
+        result = filmService.applyLikes(List.of(unlike));
+        assertEquals(List.of(unlike), result.getApplied());
+        assertEquals(1, filmService.getFilmById(film.getId()).getLikeCount());
+    }
+
+    // Параллельная транзакция вставила ту же пару после проверки NOT EXISTS: вставка упирается в первичный ключ
+    @Test
+    void applyLikesBatchReportsPairInsertedConcurrentlyAsDuplicate() throws InterruptedException {
+        User user1 = userRepository.save(User.builder().email("u1@user.ru").login("user1").build());
+        User user2 = userRepository.save(User.builder().email("u2@user.ru").login("user2").build());
+        Film film = filmRepository.save(Film.builder()
+                .name("Film")
+                .description("d")
+                .releaseDate(LocalDate.of(2001, 1, 1))
+                .duration(100)
+                .mpa(mpaRepository.findAll().getFirst())
+                .build());
+        CountDownLatch inserted = new CountDownLatch(1);
+        Thread concurrent = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", film.getId(), user1.getId());
+            inserted.countDown();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        concurrent.start();
+        assertTrue(inserted.await(5, TimeUnit.SECONDS));
+
+        LikeChange raced = LikeChange.builder().filmId(film.getId()).userId(user1.getId()).action(LikeAction.LIKE).build();
+        LikeChange fresh = LikeChange.builder().filmId(film.getId()).userId(user2.getId()).action(LikeAction.LIKE).build();
+        LikeBatchResult result = filmService.applyLikes(List.of(raced, fresh));
+        concurrent.join();
+
+        assertEquals(List.of(fresh), result.getApplied());
+        assertEquals(List.of(raced), result.getDuplicates());
+        assertTrue(filmRepository.isLikeExists(film.getId(), user1.getId()));
+        assertTrue(filmRepository.isLikeExists(film.getId(), user2.getId()));
     }
 
     @Test
@@ -297,4 +571,134 @@ class FilmServiceTest {
         assertThrows(IllegalArgumentException.class,
                 () -> filmService.findMostLikedFilms(-1));
     }
+
+    @Test
+    void findMostLikedFilmsByGenreAndYear() {
+        User user1 = userRepository.save(User.builder().email("u1@user.ru").login("user1").build());
+        User user2 = userRepository.save(User.builder().email("u2@user.ru").login("user2").build());
+        Film comedy2001 = filmService.createFilm(Film.builder()
+                .name("Comedy 2001").description("d")
+                .releaseDate(LocalDate.of(2001, 1, 1)).duration(100)
+                .mpa(mpaRepository.findAll().getFirst())
+                .genres(Set.of(Genre.builder().id(1).build()))
+                .build());
+        Film drama2001 = filmService.createFilm(Film.builder()
+                .name("Drama 2001").description("d")
+                .releaseDate(LocalDate.of(2001, 6, 1)).duration(100)
+                .mpa(mpaRepository.findAll().getFirst())
+                .genres(Set.of(Genre.builder().id(2).build()))
+                .build());
+        Film comedy2002 = filmService.createFilm(Film.builder()
+                .name("Comedy 2002").description("d")
+                .releaseDate(LocalDate.of(2002, 1, 1)).duration(100)
+                .mpa(mpaRepository.findAll().getFirst())
+                .genres(Set.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()))
+                .build());
+        filmService.addLike(drama2001.getId(), user1.getId());
+        filmService.addLike(drama2001.getId(), user2.getId());
+        filmService.addLike(comedy2002.getId(), user1.getId());
+
+        assertEquals(List.of(comedy2002.getId(), comedy2001.getId()), ids(filmService.findMostLikedFilms(10, 1, null)));
+        assertEquals(List.of(drama2001.getId(), comedy2001.getId()), ids(filmService.findMostLikedFilms(10, null, 2001)));
+        assertEquals(List.of(comedy2001.getId()), ids(filmService.findMostLikedFilms(10, 1, 2001)));
+        assertEquals(List.of(), filmService.findMostLikedFilms(10, 1, 1990));
+        assertEquals(ids(filmService.findMostLikedFilms(10)), ids(filmService.findMostLikedFilms(10, null, null)));
+
+        // фильм меняет жанр и год: переезжает в другие корзины, лайки сохраняются
+        filmService.updateFilm(drama2001.toBuilder()
+                .releaseDate(LocalDate.of(2002, 3, 1))
+                .genres(Set.of(Genre.builder().id(1).build()))
+                .build());
+        assertEquals(List.of(drama2001.getId(), comedy2002.getId(), comedy2001.getId()),
+                ids(filmService.findMostLikedFilms(10, 1, null)));
+        assertEquals(List.of(comedy2001.getId()), ids(filmService.findMostLikedFilms(10, null, 2001)));
+        assertEquals(2, filmService.findMostLikedFilms(1, 1, 2002).getFirst().getLikeCount());
+
+        assertThrows(NotFoundException.class, () -> filmService.findMostLikedFilms(10, 9999, null));
+    }
+
+    @Test
+    void searchFilms() {
+        User user = userRepository.save(User.builder().email("u1@user.ru").login("user1").build());
+        Film matrix = filmService.createFilm(Film.builder()
+                .name("Матрица").description("Хакеры узнают всё о мире")
+                .releaseDate(LocalDate.of(1999, 3, 31)).duration(136)
+                .mpa(mpaRepository.findAll().getFirst())
+                .build());
+        Film hackers = filmService.createFilm(Film.builder()
+                .name("Хакеры").description("Подростки против корпорации")
+                .releaseDate(LocalDate.of(1995, 9, 15)).duration(105)
+                .mpa(mpaRepository.findAll().getFirst())
+                .build());
+        Film social = filmService.createFilm(Film.builder()
+                .name("Social Network").description("История хакера, создавшего Facebook")
+                .releaseDate(LocalDate.of(2010, 10, 1)).duration(120)
+                .mpa(mpaRepository.findAll().getFirst())
+                .build());
+        filmService.addLike(social.getId(), user.getId());
+
+        // совпадение в названии весит больше, среди совпадений в описании выше фильм с лайками
+        assertEquals(List.of(hackers.getId(), social.getId(), matrix.getId()),
+                ids(filmService.searchFilms("ХАКЕР", null, null)));
+        assertEquals(List.of(social.getId(), matrix.getId()),
+                ids(filmService.searchFilms("хакер", List.of("description"), null)));
+        assertEquals(List.of(matrix.getId()), ids(filmService.searchFilms("ВСЕ мат", null, null)));
+        assertEquals(List.of(hackers.getId()), ids(filmService.searchFilms("хакер", null, 1)));
+        assertEquals(List.of(), filmService.searchFilms("хакер мир facebook", null, null));
+
+        filmService.updateFilm(matrix.toBuilder().name("Матрица: Перезагрузка").description("Сиквел").build());
+        assertEquals(List.of(matrix.getId()), ids(filmService.searchFilms("перезагр", List.of("title"), null)));
+        assertEquals(List.of(hackers.getId(), social.getId()), ids(filmService.searchFilms("хакер", null, null)));
+
+        assertThrows(IllegalArgumentException.class, () -> filmService.searchFilms(" ", null, null));
+        assertThrows(IllegalArgumentException.class, () -> filmService.searchFilms("хакер", List.of("genre"), null));
+        assertThrows(IllegalArgumentException.class, () -> filmService.searchFilms("хакер", null, 0));
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+
+    @Test
+    void getRecommendations() {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            users.add(userRepository.save(User.builder()
+                    .email("u" + i + "@user.ru").login("user" + i).name("User " + i)
+                    .birthday(LocalDate.of(1990, 1, i))
+                    .build()));
+        }
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            films.add(filmRepository.save(Film.builder()
+                    .name("Film" + i).description("d" + i)
+                    .releaseDate(LocalDate.of(2000 + i, 1, 1)).duration(100)
+                    .mpa(mpaRepository.findAll().getFirst())
+                    .build()));
+        }
+        int me = users.get(0).getId();
+        int similar = users.get(1).getId();
+        int other = users.get(2).getId();
+
+        // similar совпадает со мной по двум фильмам, other — по одному
+        filmService.addLike(films.get(0).getId(), me);
+        filmService.addLike(films.get(1).getId(), me);
+        filmService.addLike(films.get(0).getId(), similar);
+        filmService.addLike(films.get(1).getId(), similar);
+        filmService.addLike(films.get(2).getId(), similar);
+        filmService.addLike(films.get(0).getId(), other);
+        filmService.addLike(films.get(3).getId(), other);
+
+        List<Integer> recommended = filmService.getRecommendations(me, null).stream().map(Film::getId).toList();
+        assertEquals(List.of(films.get(2).getId(), films.get(3).getId()), recommended);
+
+        // матрица обновляется при снятии лайка: у similar пропадает пересечение по второму фильму
+        filmService.deleteLike(films.get(1).getId(), similar);
+        filmService.addLike(films.get(1).getId(), other);
+        recommended = filmService.getRecommendations(me, 1).stream().map(Film::getId).toList();
+        assertEquals(List.of(films.get(3).getId()), recommended);
+
+        assertThrows(NotFoundException.class, () -> filmService.getRecommendations(-1, null));
+        assertThrows(IllegalArgumentException.class, () -> filmService.getRecommendations(me, 0));
+    }
 }
@@ -0,0 +1,223 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.config.LikeBufferProperties;
+import ru.yandex.practicum.filmorate.exception.LikeBufferFullException;
+import ru.yandex.practicum.filmorate.exception.OperationNotAllowedException;
+import ru.yandex.practicum.filmorate.index.EntityVersions;
+import ru.yandex.practicum.filmorate.index.LikeBuffer;
+import ru.yandex.practicum.filmorate.job.LikeBufferFlushJob;
+import ru.yandex.practicum.filmorate.job.LikeCountReconciliationJob;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeAction;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.MpaRepository;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Сброс по расписанию отодвинут, чтобы тест сам решал, когда лайки попадают в базу
+@SpringBootTest(classes = FilmorateApplication.class, properties = {
+        "filmorate.likes.buffer.enabled=true",
+        "filmorate.likes.buffer.flush-interval-ms=3600000"})
+@AutoConfigureTestDatabase
+class LikeBufferTest {
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MpaRepository mpaRepository;
+
+    @Autowired
+    private LikeBuffer likeBuffer;
+
+    @Autowired
+    private LikeBufferFlushJob flushJob;
+
+    @Autowired
+    private LikeCountReconciliationJob reconciliationJob;
+
+    @Autowired
+    private EntityVersions entityVersions;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Film film;
+    private User user1;
+    private User user2;
+
+    @BeforeEach
+    void beforeEach() {
+        filmRepository.deleteAll();
+        userRepository.deleteAll();
+        film = filmRepository.save(Film.builder()
+                .name("Film").description("d")
+                .releaseDate(LocalDate.of(2001, 1, 1)).duration(100)
+                .mpa(mpaRepository.findAll().getFirst())
+                .build());
+        user1 = userRepository.save(User.builder().email("u1@user.ru").login("user1").build());
+        user2 = userRepository.save(User.builder().email("u2@user.ru").login("user2").build());
+    }
+
+    @AfterEach
+    void afterEach() {
+        filmRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void bufferedLikesAreVisibleBeforeFlush() {
+        filmService.addLike(film.getId(), user1.getId());
+        filmService.addLike(film.getId(), user2.getId());
+
+        assertEquals(0, storedLikes());
+        assertEquals(2, filmService.findMostLikedFilms(1).getFirst().getLikeCount());
+        assertEquals(2, filmService.getFilmById(film.getId()).getLikeCount());
+        assertThrows(OperationNotAllowedException.class, () -> filmService.addLike(film.getId(), user1.getId()));
+
+        flushJob.flush();
+        assertEquals(2, storedLikes());
+        assertEquals(2, storedLikeCount());
+        assertEquals(0, likeBuffer.size());
+        assertEquals(2, filmService.getFilmById(film.getId()).getLikeCount());
+    }
+
+    @Test
+    void likeAndUnlikeCoalesce() {
+        filmService.addLike(film.getId(), user1.getId());
+        filmService.deleteLike(film.getId(), user1.getId());
+        assertEquals(0, likeBuffer.size());
+        assertEquals(0, filmService.getFilmById(film.getId()).getLikeCount());
+
+        filmService.addLike(film.getId(), user1.getId());
+        flushJob.flush();
+        filmService.deleteLike(film.getId(), user1.getId());
+        assertEquals(1, likeBuffer.size());
+        assertFalse(filmRepository.isLikeExists(film.getId(), user1.getId()));
+        assertEquals(1, storedLikes());
+
+        flushJob.flush();
+        assertEquals(0, storedLikes());
+        assertEquals(0, storedLikeCount());
+    }
+
+    @Test
+    void batchLikesGoThroughBuffer() {
+        LikeChange like = LikeChange.builder().filmId(film.getId()).userId(user1.getId()).build();
+        filmService.applyLikes(List.of(like));
+        assertTrue(filmRepository.isLikeExists(film.getId(), user1.getId()));
+        assertEquals(0, storedLikes());
+
+        LikeChange unlike = like.toBuilder().action(LikeAction.UNLIKE).build();
+        assertEquals(List.of(unlike), filmService.applyLikes(List.of(unlike)).getApplied());
+        assertEquals(0, likeBuffer.size());
+    }
+
+    @Test
+    void likesOfDeletedUserAreSkippedOnFlush() {
+        filmService.addLike(film.getId(), user1.getId());
+        filmService.addLike(film.getId(), user2.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user2.getId());
+
+        flushJob.flush();
+        assertEquals(1, storedLikes());
+        assertEquals(1, storedLikeCount());
+        assertEquals(0, likeBuffer.size());
+        assertEquals(1, filmService.getFilmById(film.getId()).getLikeCount());
+        assertEquals(1, filmService.findMostLikedFilms(1).getFirst().getLikeCount());
+    }
+
+    @Test
+    void likeStoredBypassingBufferIsRevertedInIndexesOnFlush() {
+        filmService.addLike(film.getId(), user1.getId());
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", film.getId(), user1.getId());
+        jdbcTemplate.update("UPDATE films SET like_count = 1 WHERE id = ?", film.getId());
+        String filmTag = entityVersions.filmTag(film.getId());
+        String listTag = entityVersions.filmListTag();
+
+        flushJob.flush();
+        assertEquals(1, storedLikes());
+        assertEquals(1, storedLikeCount());
+        assertEquals(0, filmService.getFilmById(film.getId()).getLikeCount());
+        // откат в индексах меняет like_count в ответах, поэтому ETag фильма и списков меняются
+        assertNotEquals(filmTag, entityVersions.filmTag(film.getId()));
+        assertNotEquals(listTag, entityVersions.filmListTag());
+    }
+
+    @Test
+    void reconcileKeepsLikesBufferedAfterFlush() {
+        filmService.addLike(film.getId(), user1.getId());
+        flushJob.flush();
+        jdbcTemplate.update("UPDATE films SET like_count = 5 WHERE id = ?", film.getId());
+        // Лайк, принятый между сбросом буфера и перестройкой рейтинга
+        filmService.addLike(film.getId(), user2.getId());
+
+        assertEquals(1, filmRepository.reconcileLikeCounts());
+        assertEquals(1, storedLikeCount());
+        assertEquals(1, likeBuffer.size());
+        assertEquals(2, filmService.getFilmById(film.getId()).getLikeCount());
+    }
+
+    @Test
+    void reconciliationJobFlushesBufferFirst() {
+        filmService.addLike(film.getId(), user1.getId());
+        jdbcTemplate.update("UPDATE films SET like_count = 5 WHERE id = ?", film.getId());
+
+        reconciliationJob.reconcile();
+        assertEquals(0, likeBuffer.size());
+        assertEquals(1, storedLikes());
+        assertEquals(1, storedLikeCount());
+        assertEquals(1, filmService.getFilmById(film.getId()).getLikeCount());
+    }
+
+    // Сброс не проходит: буфер ограничен 2 x max-pending парами, уже лежащие в нём пары меняются как обычно
+    @Test
+    void newPairsAreRejectedAboveHardLimitWhileFlushFails() {
+        LikeBuffer buffer = new LikeBuffer(new LikeBufferProperties(true, 1000, 2));
+        Runnable noop = () -> {
+        };
+        for (int userId = 1; userId <= 3; userId++) {
+            assertTrue(buffer.apply(1, userId, true, () -> false, noop));
+        }
+        buffer.beginFlush();
+        assertTrue(buffer.apply(2, 1, true, () -> false, noop));
+        buffer.endFlush(false);
+        assertEquals(4, buffer.size());
+
+        assertThrows(LikeBufferFullException.class, () -> buffer.apply(2, 2, true, () -> false, noop));
+        // событие, не меняющее состояние пары, буфер не растит и не отклоняется
+        assertFalse(buffer.apply(2, 2, false, () -> false, noop));
+        assertTrue(buffer.apply(1, 1, false, () -> false, noop));
+        assertEquals(3, buffer.size());
+        assertTrue(buffer.apply(2, 2, true, () -> false, noop));
+        assertEquals(4, buffer.size());
+    }
+
+    private int storedLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Integer.class);
+    }
+
+    private int storedLikeCount() {
+        return jdbcTemplate.queryForObject("SELECT like_count FROM films WHERE id = ?", Integer.class, film.getId());
+    }
+}
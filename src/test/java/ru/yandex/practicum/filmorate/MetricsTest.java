@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.MpaRepository;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = FilmorateApplication.class)
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class MetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private MpaRepository mpaRepository;
+
+    private Film film;
+
+    @BeforeEach
+    void beforeEach() {
+        filmRepository.deleteAll();
+        film = filmService.createFilm(Film.builder()
+                .id(0)
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(mpaRepository.findAll().getFirst())
+                .build());
+    }
+
+    @AfterEach
+    void afterEach() {
+        filmRepository.deleteAll();
+    }
+
+    // Фильм и его жанры — два запроса к базе
+    @Test
+    void filmByIdTakesTwoRoundTrips() throws Exception {
+        DistributionSummary before = roundTrips();
+        long countBefore = before == null ? 0 : before.count();
+        double totalBefore = before == null ? 0 : before.totalAmount();
+
+        mockMvc.perform(get("/films/{id}", film.getId())).andExpect(status().isOk());
+
+        DistributionSummary after = roundTrips();
+        assertNotNull(after);
+        assertEquals(1, after.count() - countBefore);
+        assertEquals(2, after.totalAmount() - totalBefore);
+    }
+
+    @Test
+    void repositoryCallsAreTimedWithRepositoryAndMethodTags() throws Exception {
+        mockMvc.perform(get("/films/{id}", film.getId())).andExpect(status().isOk());
+
+        Timer timer = meterRegistry.find("filmorate.repository")
+                .tags("repository", "FilmRepository", "method", "findById", "exception", "none")
+                .timer();
+        assertNotNull(timer);
+        assertTrue(timer.count() > 0);
+        assertNotNull(meterRegistry.find("filmorate.repository.rows")
+                .tags("repository", "FilmRepository", "method", "findById")
+                .summary());
+    }
+
+    private DistributionSummary roundTrips() {
+        return meterRegistry.find("filmorate.jdbc.round.trips")
+                .tags("method", "GET", "uri", "/films/{id}")
+                .summary();
+    }
+}
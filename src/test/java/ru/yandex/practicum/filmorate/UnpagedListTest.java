@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.MpaRepository;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Выдача без пагинации ограничена двумя записями, чтобы проверить обрезку на трёх
+@SpringBootTest(classes = FilmorateApplication.class, properties = "filmorate.pagination.max-unpaged=2")
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class UnpagedListTest {
+    private static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private MpaRepository mpaRepository;
+
+    @BeforeEach
+    void beforeEach() {
+        filmRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @AfterEach
+    void afterEach() {
+        filmRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void truncatedUserListCarriesNextCursor() throws Exception {
+        createUser(1);
+        createUser(2);
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().doesNotExist(NEXT_CURSOR));
+
+        User third = createUser(3);
+        String cursor = mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().exists(NEXT_CURSOR))
+                .andReturn().getResponse().getHeader(NEXT_CURSOR);
+
+        mockMvc.perform(get("/users").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(third.getId()));
+    }
+
+    @Test
+    void truncatedFilmListCarriesNextCursor() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            filmService.createFilm(Film.builder()
+                    .name("Фильм " + i)
+                    .description("d")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .mpa(mpaRepository.findAll().getFirst())
+                    .build());
+        }
+
+        String cursor = mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andReturn().getResponse().getHeader(NEXT_CURSOR);
+        assertNotNull(cursor);
+    }
+
+    private User createUser(int n) {
+        return userService.createUser(User.builder().email("u" + n + "@user.ru").login("u" + n).build());
+    }
+}
@@ -10,8 +10,12 @@ import ru.yandex.practicum.filmorate.exception.EmailAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exception.InvalidJsonFieldException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.OperationNotAllowedException;
+import ru.yandex.practicum.filmorate.index.EntityVersions;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.UserRepository;
+import ru.yandex.practicum.filmorate.repository.impl.UserRepositoryImpl;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.time.LocalDate;
@@ -29,6 +33,12 @@ class UserServiceTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserRepositoryImpl userRepositoryImpl;
+
+    @Autowired
+    private EntityVersions entityVersions;
+
     @BeforeEach
     void beforeEach() {
         userRepository.deleteAll();
@@ -82,10 +92,34 @@ class UserServiceTest {
                 .email("r-kadiy@ukupnik.ru").login("u2").name("U2")
                 .build());
 
-        List<User> all = userService.getAllUsers();
+        List<User> all = userService.getAllUsers().getItems();
         assertEquals(2, all.size());
     }
 
+    @Test
+    void getUsersPage() {
+        for (int i = 1; i <= 5; i++) {
+            userService.createUser(User.builder()
+                    .email("u" + i + "@yandex.ru").login("u" + i)
+                    .build());
+        }
+
+        Page<User> first = userService.getUsersPage(null, 2);
+        assertEquals(2, first.getItems().size());
+        assertNotNull(first.getNextCursor());
+
+        Page<User> second = userService.getUsersPage(first.getNextCursor(), 2);
+        assertEquals(2, second.getItems().size());
+        assertTrue(first.getItems().getLast().getId() < second.getItems().getFirst().getId());
+
+        Page<User> last = userService.getUsersPage(second.getNextCursor(), 2);
+        assertEquals(1, last.getItems().size());
+        assertNull(last.getNextCursor());
+
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersPage("мусор", 2));
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersPage(null, 0));
+    }
+
     @Test
     void makeFriends() {
         User user1 = userService.createUser(User.builder()
@@ -189,6 +223,18 @@ class UserServiceTest {
         assertEquals("Arkadiy", fromDb.getName());
     }
 
+    @Test
+    void userVersionChangesOnUpdate() {
+        User orig = userService.createUser(User.builder()
+                .id(0)
+                .email("etag@yandex.ru").login("etag").name("")
+                .build());
+        String tag = entityVersions.userTag(orig.getId());
+
+        userService.updateUser(orig.toBuilder().name("Renamed").build());
+        assertNotEquals(tag, entityVersions.userTag(orig.getId()));
+    }
+
     @Test
     void updateNonExistingUser() {
         User non = User.builder()
@@ -235,6 +281,101 @@ class UserServiceTest {
         assertEquals(common.getId(), commonFriends.getFirst().getId());
     }
 
+    @Test
+    void getCommonFriendsIgnoresUnconfirmedIncomingRequests() {
+        User u1 = userService.createUser(User.builder()
+                .email("u1@yandex.ru").login("u1").build());
+        User u2 = userService.createUser(User.builder()
+                .email("u2@yandex.ru").login("u2").build());
+        User requester = userService.createUser(User.builder()
+                .email("requester@yandex.ru").login("requester").build());
+
+        // requester отправил заявки обоим, но никто их не подтвердил
+        userService.makeFriends(requester.getId(), u1.getId());
+        userService.makeFriends(requester.getId(), u2.getId());
+
+        assertTrue(userService.getUserFriends(u1.getId()).isEmpty());
+        assertTrue(userService.getCommonFriends(u1.getId(), u2.getId()).isEmpty());
+    }
+
+    @Test
+    void friendsSurviveSocialGraphReload() {
+        User u1 = userService.createUser(User.builder()
+                .email("u1@yandex.ru").login("u1").build());
+        User u2 = userService.createUser(User.builder()
+                .email("u2@yandex.ru").login("u2").build());
+        User u3 = userService.createUser(User.builder()
+                .email("u3@yandex.ru").login("u3").build());
+
+        userService.makeFriends(u1.getId(), u2.getId());
+        userService.makeFriends(u2.getId(), u1.getId());
+        userService.makeFriends(u3.getId(), u1.getId());
+
+        List<User> u1Friends = userService.getUserFriends(u1.getId());
+        List<User> u3Friends = userService.getUserFriends(u3.getId());
+        assertEquals(List.of(u2.getId()), u1Friends.stream().map(User::getId).toList());
+        assertEquals(List.of(u1.getId()), u3Friends.stream().map(User::getId).toList());
+
+        // граф, построенный заново из таблицы friends, совпадает с инкрементально обновлённым
+        userRepositoryImpl.loadSocialGraph();
+        assertEquals(u1Friends, userService.getUserFriends(u1.getId()));
+        assertEquals(u3Friends, userService.getUserFriends(u3.getId()));
+        assertTrue(userRepository.existsFriendship(u1.getId(), u2.getId()));
+        assertTrue(userRepository.isValidFriendRequest(u3.getId(), u1.getId()));
+    }
+
+    @Test
+    void getFriendSuggestions() {
+        User me = userService.createUser(User.builder()
+                .email("me@yandex.ru").login("me").build());
+        User a = userService.createUser(User.builder()
+                .email("a@yandex.ru").login("a").build());
+        User b = userService.createUser(User.builder()
+                .email("b@yandex.ru").login("b").build());
+        User c = userService.createUser(User.builder()
+                .email("c@yandex.ru").login("c").build());
+        User d = userService.createUser(User.builder()
+                .email("d@yandex.ru").login("d").build());
+
+        userService.makeFriends(me.getId(), a.getId());
+        userService.makeFriends(me.getId(), b.getId());
+        userService.makeFriends(a.getId(), c.getId());
+        userService.makeFriends(a.getId(), d.getId());
+        userService.makeFriends(b.getId(), c.getId());
+
+        // c — общий друг двух друзей, d — одного
+        assertEquals(List.of(c.getId(), d.getId()), userService.getFriendSuggestions(me.getId(), null)
+                .stream().map(User::getId).toList());
+        assertEquals(List.of(c.getId()), userService.getFriendSuggestions(me.getId(), 1)
+                .stream().map(User::getId).toList());
+
+        // изменение дружбы сбрасывает закэшированный результат
+        userService.makeFriends(me.getId(), c.getId());
+        assertEquals(List.of(d.getId()), userService.getFriendSuggestions(me.getId(), null)
+                .stream().map(User::getId).toList());
+
+        assertThrows(IllegalArgumentException.class, () -> userService.getFriendSuggestions(me.getId(), 0));
+        assertThrows(NotFoundException.class, () -> userService.getFriendSuggestions(-1, null));
+    }
+
+    @Test
+    void makeFriendsReturnsResultingStatus() {
+        User u1 = userService.createUser(User.builder()
+                .email("u1@yandex.ru").login("u1").build());
+        User u2 = userService.createUser(User.builder()
+                .email("u2@yandex.ru").login("u2").build());
+
+        assertEquals(FriendshipStatus.PENDING, userService.makeFriends(u1.getId(), u2.getId()));
+        assertThrows(OperationNotAllowedException.class, () -> userService.makeFriends(u1.getId(), u2.getId()));
+        assertEquals(FriendshipStatus.CONFIRMED, userService.makeFriends(u2.getId(), u1.getId()));
+        assertThrows(OperationNotAllowedException.class, () -> userService.makeFriends(u2.getId(), u1.getId()));
+        assertThrows(NotFoundException.class, () -> userService.confirmFriendship(u2.getId(), u1.getId()));
+
+        userService.removeFriend(u2.getId(), u1.getId());
+        assertFalse(userRepository.existsFriendship(u1.getId(), u2.getId()));
+        assertEquals(FriendshipStatus.PENDING, userService.makeFriends(u2.getId(), u1.getId()));
+    }
+
     @Test
     void existFriendship() {
         User u1 = userService.createUser(User.builder()
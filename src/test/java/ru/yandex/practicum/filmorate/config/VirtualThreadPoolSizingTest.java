@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Размер пула HikariCP в режиме виртуальных потоков. Тестовая база не подменяется
+ * (@AutoConfigureTestDatabase заменил бы пул), вместо неё — отдельная база H2 в памяти.
+ */
+class VirtualThreadPoolSizingTest {
+
+    @Nested
+    @SpringBootTest(classes = FilmorateApplication.class, properties = {
+            "spring.threads.virtual.enabled=true",
+            "spring.datasource.url=jdbc:h2:mem:virtual-pool-default;DB_CLOSE_DELAY=-1"})
+    class DefaultPoolSize {
+
+        @Autowired
+        private DataSource dataSource;
+
+        @Test
+        void poolIsSizedToCarrierThreads() {
+            int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                    Runtime.getRuntime().availableProcessors());
+            HikariDataSource pool = hikari(dataSource);
+            assertEquals(Math.max(2, carriers), pool.getMaximumPoolSize());
+            assertEquals(pool.getMaximumPoolSize(), pool.getMinimumIdle());
+        }
+    }
+
+    @Nested
+    @SpringBootTest(classes = FilmorateApplication.class, properties = {
+            "spring.threads.virtual.enabled=true",
+            "spring.datasource.url=jdbc:h2:mem:virtual-pool-explicit;DB_CLOSE_DELAY=-1",
+            "spring.datasource.hikari.maximum-pool-size=7"})
+    class ExplicitPoolSize {
+
+        @Autowired
+        private DataSource dataSource;
+
+        @Test
+        void explicitPoolSizeIsKept() {
+            assertEquals(7, hikari(dataSource).getMaximumPoolSize());
+        }
+    }
+
+    // Пул может быть обёрнут счётчиком обращений JdbcRoundTrips
+    private static HikariDataSource hikari(DataSource dataSource) {
+        HikariDataSource pool = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class,
+                HikariDataSource.class);
+        assertNotNull(pool);
+        return pool;
+    }
+}
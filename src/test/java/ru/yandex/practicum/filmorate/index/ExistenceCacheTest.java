@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.config.ExistenceCacheProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.index.ExistenceCache.EntityType.FILM;
+import static ru.yandex.practicum.filmorate.index.ExistenceCache.EntityType.USER;
+
+class ExistenceCacheTest {
+    private static final IntPredicate NO_DATABASE = id -> fail("Кэш должен ответить без запроса к базе: " + id);
+
+    @Test
+    void idAbsentFromBloomFilterIsAnsweredWithoutDatabase() {
+        ExistenceCache cache = new ExistenceCache(new ExistenceCacheProperties(1000, 0.01, 64));
+        cache.register(FILM, 1);
+
+        assertFalse(cache.exists(FILM, 2, NO_DATABASE));
+        // типы не пересекаются: id фильма не делает существующим пользователя
+        assertFalse(cache.exists(USER, 1, NO_DATABASE));
+    }
+
+    @Test
+    void bloomFalsePositiveFallsThroughToDatabase() {
+        // фильтр на 10 записей переполнен тысячей id и почти на любой id отвечает «возможно»
+        ExistenceCache cache = new ExistenceCache(new ExistenceCacheProperties(10, 0.01, 64));
+        for (int id = 1; id <= 1000; id++) {
+            cache.register(FILM, id);
+        }
+        AtomicInteger queries = new AtomicInteger();
+        IntPredicate absentInDatabase = id -> {
+            queries.incrementAndGet();
+            return false;
+        };
+        int falsePositive = 1000;
+        while (queries.get() == 0 && falsePositive < 2000) {
+            falsePositive++;
+            assertFalse(cache.exists(FILM, falsePositive, absentInDatabase));
+        }
+        assertEquals(1, queries.get());
+
+        // отрицательный ответ базы не запоминается: следующая проверка снова идёт в базу
+        assertFalse(cache.exists(FILM, falsePositive, absentInDatabase));
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void registeredIdIsConfirmedByDatabaseOnce() {
+        ExistenceCache cache = new ExistenceCache(new ExistenceCacheProperties(1000, 0.01, 64));
+        // id записан другим путём (вставка в репозитории), проверка существования его ещё не видела
+        cache.register(USER, 7);
+        AtomicInteger queries = new AtomicInteger();
+
+        assertTrue(cache.exists(USER, 7, id -> queries.incrementAndGet() > 0));
+        assertTrue(cache.exists(USER, 7, NO_DATABASE));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void confirmedIdEvictedBySlotCollisionIsCheckedAgain() {
+        ExistenceCache cache = new ExistenceCache(new ExistenceCacheProperties(1000, 0.01, 4));
+        cache.register(FILM, 1);
+        cache.register(FILM, 5);
+        assertTrue(cache.exists(FILM, 1, id -> true));
+        assertTrue(cache.exists(FILM, 5, id -> true));
+
+        AtomicInteger queries = new AtomicInteger();
+        assertTrue(cache.exists(FILM, 1, id -> queries.incrementAndGet() > 0));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void resetForgetsRegisteredAndConfirmedIds() {
+        ExistenceCache cache = new ExistenceCache(new ExistenceCacheProperties(1000, 0.01, 64));
+        cache.register(FILM, 3);
+        assertTrue(cache.exists(FILM, 3, id -> true));
+
+        cache.reset(FILM);
+
+        assertFalse(cache.exists(FILM, 3, NO_DATABASE));
+    }
+}
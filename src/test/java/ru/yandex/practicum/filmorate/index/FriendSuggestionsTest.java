@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.config.SuggestionProperties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendSuggestionsTest {
+    private SocialGraph graph;
+    private FriendSuggestions suggestions;
+
+    @BeforeEach
+    void beforeEach() {
+        graph = new SocialGraph();
+        // 1 — 2 — 3: третий рекомендуется первому через второго
+        graph.addEdge(1, 2, true);
+        graph.addEdge(2, 3, true);
+        suggestions = new FriendSuggestions(graph, new SuggestionProperties(100, 200000, 64));
+    }
+
+    @Test
+    void unrelatedFriendshipChangeKeepsCachedRanking() {
+        int[] cached = suggestions.suggest(1, 10);
+        assertArrayEquals(new int[]{3}, cached);
+
+        graph.addEdge(10, 11, true);
+        graph.removeEdges(10, 11);
+
+        assertSame(cached, suggestions.suggest(1, 10));
+    }
+
+    @Test
+    void friendOfFriendChangeRecomputesRanking() {
+        assertArrayEquals(new int[]{3}, suggestions.suggest(1, 10));
+
+        graph.addEdge(2, 4, false);
+
+        assertArrayEquals(new int[]{3, 4}, suggestions.suggest(1, 10));
+    }
+
+    @Test
+    void incomingConfirmedFriendshipRecomputesRanking() {
+        graph.addEdge(4, 5, false);
+        assertArrayEquals(new int[0], suggestions.suggest(5, 10));
+
+        // подтверждённая заявка делает 5 другом 4, и друзья 4 становятся рекомендациями для 5
+        graph.addEdge(4, 6, true);
+        graph.confirmEdge(4, 5);
+
+        assertArrayEquals(new int[]{6}, suggestions.suggest(5, 10));
+    }
+
+    @Test
+    void removedFriendshipRecomputesRanking() {
+        assertArrayEquals(new int[]{3}, suggestions.suggest(1, 10));
+
+        graph.removeEdges(2, 1);
+
+        assertArrayEquals(new int[0], suggestions.suggest(1, 10));
+    }
+
+    @Test
+    void reloadedGraphRecomputesRanking() {
+        assertArrayEquals(new int[]{3}, suggestions.suggest(1, 10));
+
+        SocialGraph.Loader loader = graph.loader();
+        loader.add(1, 2, true);
+        loader.add(2, 4, true);
+        loader.install();
+
+        assertArrayEquals(new int[]{4}, suggestions.suggest(1, 10));
+    }
+
+    @Test
+    void usersSharingSlotGetOwnRankings() {
+        suggestions = new FriendSuggestions(graph, new SuggestionProperties(100, 200000, 4));
+        graph.addEdge(5, 6, true);
+        graph.addEdge(6, 7, true);
+
+        assertArrayEquals(new int[]{3}, suggestions.suggest(1, 10));
+        assertArrayEquals(new int[]{7}, suggestions.suggest(5, 10));
+        assertArrayEquals(new int[]{3}, suggestions.suggest(1, 10));
+    }
+}
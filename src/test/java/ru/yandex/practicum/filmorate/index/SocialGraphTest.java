@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocialGraphTest {
+
+    @Test
+    void pendingRequestToHighestIdCanBeConfirmedAfterLoad() {
+        SocialGraph graph = new SocialGraph();
+        SocialGraph.Loader loader = graph.loader();
+        loader.add(1, 2, true);
+        // получатель заявки старше всех остальных id и встречается только в строке отправителя
+        loader.add(1, 100, false);
+        loader.install();
+
+        assertTrue(graph.hasPendingRequest(1, 100));
+        graph.confirmEdge(1, 100);
+
+        assertTrue(graph.isConfirmed(1, 100));
+        assertArrayEquals(new int[]{1}, graph.friendsOf(100));
+        assertArrayEquals(new int[]{2, 100}, graph.friendsOf(1));
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет через EXPLAIN, что горячие запросы репозиториев читают индексы из миграций,
+ * а не сканируют таблицы целиком. Запросы репозиториев берутся из их констант, поэтому
+ * изменение SQL в репозитории проверяется здесь же.
+ * <p>
+ * Вторичные индексы friends, likes, film_genres и индекс внешнего ключа films(content_rating_id)
+ * репозитории не читают: списки друзей, лайки и жанры отдаются из памяти. Эти индексы нужны
+ * H2 при каскадном удалении пользователя, жанра и рейтинга, поэтому для них проверяются выборки,
+ * которые H2 выполняет при каскаде.
+ */
+@SpringBootTest(classes = FilmorateApplication.class)
+@AutoConfigureTestDatabase
+class QueryPlanTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void popularityUsesLikeCountIndex() {
+        String plan = explain(FilmRepositoryImpl.POPULARITY_SQL);
+        assertTrue(plan.contains("FILMS_LIKE_COUNT_IDX"), plan);
+    }
+
+    @Test
+    void filmsPageUsesPrimaryKeyOrder() {
+        String plan = explain(FilmRepositoryImpl.FILMS_PAGE_SQL, 1, 10);
+        assertPrimaryKey(plan, "FILMS");
+        assertTrue(plan.contains("index sorted"), plan);
+    }
+
+    @Test
+    void likeLookupsUsePrimaryKey() {
+        assertPrimaryKey(explain(FilmRepositoryImpl.LIKE_EXISTS_SQL, 1, 2), "LIKES");
+        assertPrimaryKey(explain(FilmRepositoryImpl.DELETE_LIKE_SQL, 1, 2), "LIKES");
+        String insert = explain(FilmRepositoryImpl.INSERT_LIKE_SQL, 1, 2, 1, 2, 1, 2);
+        assertPrimaryKey(insert, "LIKES");
+        assertPrimaryKey(insert, "FILMS");
+        assertPrimaryKey(insert, "USERS");
+    }
+
+    // Сверка счётчиков обходит все фильмы, но лайки каждого считает по индексу, а не сканом likes
+    @Test
+    void reconcileCountsLikesByFilmIndex() {
+        String plan = explain(FilmRepositoryImpl.RECONCILE_LIKE_COUNTS_SQL);
+        assertFalse(plan.contains("LIKES.tableScan"), plan);
+        assertTrue(plan.contains("FILM_ID = F.ID"), plan);
+    }
+
+    @Test
+    void filmGenresUsePrimaryKey() {
+        String plan = explain(GenreRepositoryImpl.FILM_GENRES_SQL, (Object) new Integer[]{1, 2});
+        assertPrimaryKey(plan, "FILM_GENRES");
+        assertTrue(plan.contains("index sorted"), plan);
+    }
+
+    @Test
+    void friendshipChangesUsePrimaryKey() {
+        assertPrimaryKey(explain(UserRepositoryImpl.FRIENDSHIP_MERGE_SQL, 1, 2), "FRIENDS");
+        assertPrimaryKey(explain(UserRepositoryImpl.CONFIRM_FRIENDSHIP_SQL, 1, 2), "FRIENDS");
+        assertPrimaryKey(explain(UserRepositoryImpl.REMOVE_FRIENDS_SQL, 1, 2, 1, 2), "FRIENDS");
+    }
+
+    // Каскадное удаление пользователя: входящие связи дружбы
+    @Test
+    void friendsOfUserUseReverseIndex() {
+        String plan = explain("SELECT user1_id FROM friends WHERE user2_id = ? AND is_confirmed = true", 1);
+        assertTrue(plan.contains("FRIENDS_USER2_CONFIRMED_IDX"), plan);
+        assertFalse(plan.contains("FRIENDS.tableScan"), plan);
+    }
+
+    // Каскадное удаление пользователя: его лайки
+    @Test
+    void likesOfUserUseUserIndex() {
+        String plan = explain("SELECT film_id FROM likes WHERE user_id = ?", 1);
+        assertTrue(plan.contains("LIKES_USER_IDX"), plan);
+    }
+
+    // Каскадное удаление жанра: его связи с фильмами
+    @Test
+    void filmsOfGenreUseGenreIndex() {
+        String plan = explain("SELECT film_id FROM film_genres WHERE genre_id = ?", 1);
+        assertTrue(plan.contains("FILM_GENRES_GENRE_IDX"), plan);
+    }
+
+    // Каскадное удаление рейтинга: отдельного индекса в миграциях нет, H2 строит его под внешний ключ
+    @Test
+    void filmsOfRatingUseForeignKeyIndex() {
+        String plan = explain("SELECT id FROM films WHERE content_rating_id = ?", 1);
+        assertFalse(plan.contains("FILMS.tableScan"), plan);
+        assertTrue(plan.contains("CONTENT_RATING_ID = ?1 */"), plan);
+    }
+
+    private String explain(String sql, Object... args) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args);
+    }
+
+    // H2 пишет выбранный индекс комментарием сразу после таблицы; имя первичного ключа генерируется (PRIMARY_KEY_2)
+    private static void assertPrimaryKey(String plan, String table) {
+        Pattern primaryKey = Pattern.compile("\"PUBLIC\"\\.\"" + table + "\"( \"\\w+\")?\\s*/\\* PUBLIC\\.PRIMARY_KEY_");
+        assertTrue(primaryKey.matcher(plan).find(), plan);
+    }
+}